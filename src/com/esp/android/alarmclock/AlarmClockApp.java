@@ -2,8 +2,6 @@ package com.esp.android.alarmclock;
 
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.GregorianCalendar;
 
 import android.app.Application;
 import android.content.Context;
@@ -32,6 +30,9 @@ public class AlarmClockApp extends Application {
                 }
                 mCrashing = true;
                 outputError(AlarmClockApp.this, "Application Fatal!", t, false, true);
+
+                // プロセスが終了する前にエラー情報を書き込む
+                ErrorLogWriter.flush(1000);
                 savedUncaughtExceptionHandler.uncaughtException(thread, t);
             }
         });
@@ -42,6 +43,12 @@ public class AlarmClockApp extends Application {
      */
     @Override
     public void onTerminate() {
+        // 書き込み待ちのエラー情報を書き込む
+        ErrorLogWriter.flush(1000);
+
+        // 共有しているDBをクローズ
+        DataManager.closeDatabase();
+
         super.onTerminate();
     }
 
@@ -75,11 +82,8 @@ public class AlarmClockApp extends Application {
             context.sendBroadcast(intent);
         }
         if (bDB) {
-            GregorianCalendar nowCalendar = new GregorianCalendar();
-            String format = "[yyyy/MM/dd HH:mm:ss]";
-            String time = new SimpleDateFormat(format).format(nowCalendar.getTime());
-            DataManager dataManager = new DataManager(context);
-            dataManager.insertErrorInf(time + " " + outputText.toString());
+            // キューに追加するだけで、DBへの書き込みはバックグラウンドで行う
+            ErrorLogWriter.write(context, outputText.toString());
         }
     }
 
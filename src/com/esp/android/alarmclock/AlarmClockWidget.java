@@ -2,10 +2,10 @@ package com.esp.android.alarmclock;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Date;
-import java.util.Random;
 
 import android.app.AlarmManager;
 import android.app.PendingIntent;
@@ -94,14 +94,14 @@ public class AlarmClockWidget extends AppWidgetProvider implements
 
         // アラーム開始
         } else if (ACTION_START_ALARM.equals(intent.getAction())) {
-            // アラーム設定のIDを取得
-            long alarmId = intent.getLongExtra("alarm_id", -1);
+            // アラーム設定のIDを取得（同じ日時のアラームはまとめて鳴らす）
+            long[] alarmIds = getAlarmIds(intent);
 
             // アラームを鳴らす
-            startAlarm(context, alarmId);
+            startAlarm(context, alarmIds);
 
             // アラーム停止画面を表示する
-            startAlarmStopActivity(context, alarmId);
+            startAlarmStopActivity(context, alarmIds);
 
             // スヌーズ解除画面を終了
             finishSnoozeReleaseActivity(context);
@@ -112,16 +112,16 @@ public class AlarmClockWidget extends AppWidgetProvider implements
         // アラーム停止
         } else if (ACTION_STOP_ALARM.equals(intent.getAction())) {
             // アラーム設定のIDを取得
-            long alarmId = intent.getLongExtra("alarm_id", -1);
+            long[] alarmIds = getAlarmIds(intent);
 
             // アラームを停止
             stopAlarm(context);
 
             // スヌーズをセット
-            long alarmTimeInMillis = setSnooze(context, alarmId);
+            long alarmTimeInMillis = setSnooze(context, alarmIds);
             if (alarmTimeInMillis >= 0) {
                 // スヌーズ解除画面を表示
-                startSnoozeReleaseActivity(context, alarmId, alarmTimeInMillis);
+                startSnoozeReleaseActivity(context, alarmIds, alarmTimeInMillis);
             } else {
                 // スヌーズ解除画面を終了
                 finishSnoozeReleaseActivity(context);
@@ -143,12 +143,25 @@ public class AlarmClockWidget extends AppWidgetProvider implements
             // プリファレンスのクリア
             DataManager.clearPreferences(context);
 
+            // インデックスを破棄
+            AlarmScheduleIndex.invalidate();
+
             // 次のアラームを設定
             setAlarm(context);
 
             // 外部ストレージから音楽ファイルを探すための非同期タスクを実行
             prepareMusicRetriever(context);
 
+        // 日時・タイムゾーン・ロケールの変更
+        } else if (Intent.ACTION_TIME_CHANGED.equals(intent.getAction()) ||
+                   Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction()) ||
+                   Intent.ACTION_LOCALE_CHANGED.equals(intent.getAction())) {
+            // インデックスの日時は変更前の時計で計算しているので破棄
+            AlarmScheduleIndex.invalidate();
+
+            // 次のアラームを設定
+            setAlarm(context);
+
         // エラー発生
         } else if (ACTION_ERROR.equals(intent.getAction())) {
             String text = intent.getStringExtra("text");
@@ -156,6 +169,19 @@ public class AlarmClockWidget extends AppWidgetProvider implements
         }
     }
 
+    /**
+     * Intentからアラーム設定のIDを取得
+     * @param intent Intent
+     * @return アラーム設定のIDの配列（先頭が代表のアラーム）
+     */
+    public static long[] getAlarmIds(Intent intent) {
+        long[] alarmIds = intent.getLongArrayExtra("alarm_ids");
+        if (alarmIds == null || alarmIds.length == 0) {
+            alarmIds = new long[] { intent.getLongExtra("alarm_id", -1) };
+        }
+        return alarmIds;
+    }
+
     /**
      * 音楽ファイル検索完了時の処理
      * @param context コンテキスト
@@ -232,15 +258,16 @@ public class AlarmClockWidget extends AppWidgetProvider implements
     /**
      * アラーム停止画面を表示
      * @param context コンテキスト
-     * @param alarmId アラーム設定のID
+     * @param alarmIds アラーム設定のIDの配列
      */
-    public static void startAlarmStopActivity(Context context, long alarmId) {
+    public static void startAlarmStopActivity(Context context, long[] alarmIds) {
         try {
             Intent intent = new Intent(context, AlarmStopActivity.class);
             // Activity以外からActivityを呼び出すためのフラグを設定
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK |
                             Intent.FLAG_ACTIVITY_MULTIPLE_TASK);
-            intent.putExtra("alarm_id", alarmId);
+            intent.putExtra("alarm_id", alarmIds[0]);
+            intent.putExtra("alarm_ids", alarmIds);
             String alarmKey = DataManager.getAlarmKey(context);
             intent.putExtra("alarm_key", alarmKey);
             context.startActivity(intent);
@@ -265,21 +292,20 @@ public class AlarmClockWidget extends AppWidgetProvider implements
     /**
      * スヌーズ解除画面を表示
      * @param context コンテキスト
-     * @param alarmId アラーム設定のID
+     * @param alarmIds アラーム設定のIDの配列
      * @param alarmTimeInMillis アラームをセットしたUTC時刻
      */
-    public static void startSnoozeReleaseActivity(Context context, long alarmId, long alarmTimeInMillis) {
+    public static void startSnoozeReleaseActivity(Context context, long[] alarmIds, long alarmTimeInMillis) {
         try {
             Intent intent = new Intent(context, SnoozeReleaseActivity.class);
             // Activity以外からActivityを呼び出すためのフラグを設定
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK |
                             Intent.FLAG_ACTIVITY_MULTIPLE_TASK);
-            intent.putExtra("alarm_id", alarmId);
+            intent.putExtra("alarm_ids", alarmIds);
             intent.putExtra("alarm_time", alarmTimeInMillis);
-            int snoozeRemainTimes = DataManager.getSnoozeRemainTimes(context);
-            intent.putExtra("remain_times", snoozeRemainTimes);
-            String alarmKey = DataManager.getAlarmKey(context);
-            intent.putExtra("alarm_key", alarmKey);
+            AlarmStateStore.Snapshot state = AlarmStateStore.get(context);
+            intent.putExtra("remain_times", state.snoozeRemainTimes);
+            intent.putExtra("alarm_key", state.alarmKey);
             context.startActivity(intent);
         } catch (Exception e) {
             AlarmClockApp.outputError(context, "Start snooze release activity error!", e, true, true);
@@ -307,36 +333,37 @@ public class AlarmClockWidget extends AppWidgetProvider implements
     public static long setAlarm(Context context) {
         long alarmTimeInMillis = -1;
         try {
-            // 次に鳴らすアラーム設定の取得
+            // 次に鳴らすアラーム設定の取得（同じ日時のアラームはまとめる）
             AlarmSetting nextSetting = null;
             GregorianCalendar nextCalendar = null;
-            DataManager dataManager = new DataManager(context);
-            List<AlarmSetting> alarmSettings = dataManager.selectAlarmSettings();
-            for (AlarmSetting alarmSetting : alarmSettings) {
-                if (alarmSetting.onOff != 0) { // アラームONのみ
-                    GregorianCalendar calendar = alarmSetting.getNextCalendar();
-                    if (calendar != null) {
-                        if (nextCalendar == null || calendar.before(nextCalendar)) {
-                            nextCalendar = calendar;
-                            nextSetting = alarmSetting;
-                        }
-                    }
-                }
+            List<AlarmScheduleIndex.Entry> group = AlarmScheduleIndex.getNextGroup(context);
+            long[] alarmIds = new long[group.size()];
+            for (int i = 0; i < alarmIds.length; i++) {
+                alarmIds[i] = group.get(i).setting.id;
+            }
+            if (group.size() > 0) {
+                nextSetting = group.get(0).setting;
+                nextCalendar = new GregorianCalendar();
+                nextCalendar.setTimeInMillis(group.get(0).timeInMillis);
             }
 
             // アラームをセット
             if (nextCalendar != null && nextSetting != null) {
                 alarmTimeInMillis = nextCalendar.getTimeInMillis();
-                setAction(context, ACTION_START_ALARM, nextSetting.id, alarmTimeInMillis);
+                setAction(context, ACTION_START_ALARM, alarmIds, alarmTimeInMillis);
+
+                // アラームの状態をまとめて変更
+                int snoozeRemainTimes = AlarmStateStore.get(context).snoozeRemainTimes;
                 if (nextSetting.snoozeMode != AlarmSetting.SnoozeMode.SnoozeOff) {
-                    DataManager.setSnoozeRemainTimes(context, nextSetting.snoozeTimes);
+                    snoozeRemainTimes = nextSetting.snoozeTimes;
                 }
                 String alarmKey = new SimpleDateFormat("yyyyMMddHHmmss").format(nextCalendar.getTime());
-                DataManager.setAlarmKey(context, alarmKey);
+                AlarmStateStore.set(context, new AlarmStateStore.Snapshot(alarmIds[0], alarmKey, snoozeRemainTimes, alarmTimeInMillis));
                 updateAppWidget(context, nextCalendar.getTime());
             } else {
                 cancelAction(context, ACTION_START_ALARM);
-                DataManager.setAlarmKey(context, "");
+                int snoozeRemainTimes = AlarmStateStore.get(context).snoozeRemainTimes;
+                AlarmStateStore.set(context, new AlarmStateStore.Snapshot(-1, "", snoozeRemainTimes, -1));
                 updateAppWidget(context, null);
             }
         } catch (Exception e) {
@@ -348,10 +375,11 @@ public class AlarmClockWidget extends AppWidgetProvider implements
 
     /**
      * アラームを鳴らす
+     * （同じ日時のアラームは先頭のアラームの音楽で1回だけ鳴らす）
      * @param context コンテキスト
-     * @param alarmId アラーム設定のID
+     * @param alarmIds アラーム設定のIDの配列
      */
-    public static void startAlarm(Context context, long alarmId) {
+    public static void startAlarm(Context context, long[] alarmIds) {
         try {
             // 音楽ファイル検索中の場合は検索完了まで待つ
             while (PrepareMusicRetrieverTask.isRetriever()) {
@@ -370,19 +398,39 @@ public class AlarmClockWidget extends AppWidgetProvider implements
                 mWakeLock.acquire();
             }
 
-            // アラーム設定を取得
+            // アラーム設定を取得（アラームONのみ）
             DataManager dataManager = new DataManager(context);
-            AlarmSetting alarmSetting = dataManager.selectAlarmSetting(alarmId);
-            if (alarmSetting == null || alarmSetting.onOff == 0) {
+            List<AlarmSetting> alarmSettings = new ArrayList<AlarmSetting>();
+            for (long alarmId : alarmIds) {
+                AlarmSetting alarmSetting = dataManager.selectAlarmSetting(alarmId);
+                if (alarmSetting != null && alarmSetting.onOff != 0) {
+                    alarmSettings.add(alarmSetting);
+                }
+            }
+            if (alarmSettings.size() == 0) {
                 AlarmClockApp.outputError(context, "Alarm is turned off.", null, true, false);
                 setAlarm(context);
                 return;
             }
 
+            // 先頭のアラーム設定を代表とし、バイブレータ・音声・鳴動時間はまとめる
+            AlarmSetting alarmSetting = alarmSettings.get(0);
+            boolean vibrator = false;
+            boolean voice = false;
+            int musicLength = 0;
+            long[] playIds = new long[alarmSettings.size()];
+            for (int i = 0; i < playIds.length; i++) {
+                AlarmSetting setting = alarmSettings.get(i);
+                playIds[i] = setting.id;
+                vibrator |= (setting.vibrator != 0);
+                voice |= (setting.voice != 0);
+                musicLength = Math.max(musicLength, setting.musicLength);
+            }
+
             // バイブレータを開始
-            if (alarmSetting.vibrator != 0) {
-                Vibrator vibrator = (Vibrator)context.getSystemService(Context.VIBRATOR_SERVICE);
-                vibrator.vibrate(new long[] { 500, 500 }, 0);
+            if (vibrator) {
+                Vibrator v = (Vibrator)context.getSystemService(Context.VIBRATOR_SERVICE);
+                v.vibrate(new long[] { 500, 500 }, 0);
             }
 
             // ボリュームを計算
@@ -403,14 +451,14 @@ public class AlarmClockWidget extends AppWidgetProvider implements
             musicPlay(context, musicItem, musicVolume);
 
             // 音声を再生
-            if (alarmSetting.voice != 0) {
+            if (voice) {
                 voicePlay(context);
             }
 
             // アラーム停止のアクションを設定
             GregorianCalendar calendar = new GregorianCalendar();
-            calendar.add(Calendar.SECOND, alarmSetting.musicLength);
-            setAction(context, ACTION_STOP_ALARM, alarmId, calendar.getTimeInMillis());
+            calendar.add(Calendar.SECOND, musicLength);
+            setAction(context, ACTION_STOP_ALARM, playIds, calendar.getTimeInMillis());
         } catch (Exception e) {
             AlarmClockApp.outputError(context, "Start alarm error!", e, true, true);
         }
@@ -448,26 +496,44 @@ public class AlarmClockWidget extends AppWidgetProvider implements
         }
     }
 
+    /**
+     * 同じ日時のアラームのうち、アラームONの最初のアラーム設定を取得
+     * （先頭のアラームがOFF・削除された場合は次のアラーム設定を使う）
+     * @param context コンテキスト
+     * @param alarmIds アラーム設定のIDの配列
+     * @return アラーム設定（全てOFF・削除された場合はnull）
+     */
+    public static AlarmSetting selectEnabledAlarmSetting(Context context, long[] alarmIds) {
+        DataManager dataManager = new DataManager(context);
+        for (long alarmId : alarmIds) {
+            AlarmSetting alarmSetting = dataManager.selectAlarmSetting(alarmId);
+            if (alarmSetting != null && alarmSetting.onOff != 0) {
+                return alarmSetting;
+            }
+        }
+        return null;
+    }
+
     /**
      * スヌーズをセット
+     * （同じ日時のアラームは先頭のアラームのスヌーズ設定でまとめてセットする）
      * @param context コンテキスト
-     * @param alarmId アラーム設定のID
+     * @param alarmIds アラーム設定のIDの配列
      * @return セットしたUTC時刻
      */
-    public static long setSnooze(Context context, long alarmId) {
+    public static long setSnooze(Context context, long[] alarmIds) {
         long alarmTimeInMillis = -1;
         try {
-            // アラーム設定を取得
-            DataManager dataManager = new DataManager(context);
-            AlarmSetting alarmSetting = dataManager.selectAlarmSetting(alarmId);
-            if (alarmSetting == null || alarmSetting.onOff == 0) {
+            // アラーム設定を取得（アラームONの最初のアラーム設定のスヌーズ設定を使う）
+            AlarmSetting alarmSetting = selectEnabledAlarmSetting(context, alarmIds);
+            if (alarmSetting == null) {
                 AlarmClockApp.outputError(context, "Alarm is turned off.", null, true, false);
                 return -1;
             }
 
             // スヌーズをセットするかどうかチェック
-            int snoozeRemainTimes = DataManager.getSnoozeRemainTimes(context);
-            if (alarmSetting.snoozeMode == AlarmSetting.SnoozeMode.SnoozeOff || snoozeRemainTimes == 0) {
+            AlarmStateStore.Snapshot state = AlarmStateStore.get(context);
+            if (alarmSetting.snoozeMode == AlarmSetting.SnoozeMode.SnoozeOff || state.snoozeRemainTimes == 0) {
                 return -1;
             }
 
@@ -475,9 +541,18 @@ public class AlarmClockWidget extends AppWidgetProvider implements
             GregorianCalendar calendar = new GregorianCalendar();
             calendar.add(Calendar.MINUTE, alarmSetting.snoozeLength);
             alarmTimeInMillis = calendar.getTimeInMillis();
-            setAction(context, ACTION_START_ALARM, alarmId, alarmTimeInMillis);
-            snoozeRemainTimes--;
-            DataManager.setSnoozeRemainTimes(context, snoozeRemainTimes);
+            setAction(context, ACTION_START_ALARM, alarmIds, alarmTimeInMillis);
+
+            // スヌーズ残り回数とアラームをセットした時刻をまとめて変更
+            // （変更前に他で残り回数が0になっていた場合は、セットしたアラームを取り消す）
+            while (!AlarmStateStore.compareAndSet(context, state,
+                       state.withSnoozeRemainTimes(state.snoozeRemainTimes - 1).withAlarmTime(alarmTimeInMillis))) {
+                state = AlarmStateStore.get(context);
+                if (state.snoozeRemainTimes == 0) {
+                    cancelAction(context, ACTION_START_ALARM);
+                    return -1;
+                }
+            }
             updateAppWidget(context, calendar.getTime());
         } catch (Exception e) {
             AlarmClockApp.outputError(context, "Set snooze error!", e, true, true);
@@ -501,14 +576,8 @@ public class AlarmClockWidget extends AppWidgetProvider implements
             if (musicItem != null) {
                 // ランダム再生
                 if (musicItem.content == MusicItem.CONTENT_RANDOM) {
-                    if (musicItem.type == MusicItem.TYPE_BOOKMARK) { // ブックマークのみ
-                        long size = dataManager.getBookmarksCount();
-                        if (size > 0) {
-                            Random rnd = new Random();
-                            int index = rnd.nextInt((int)size);
-                            MusicKey musicKey = dataManager.selectBookmark(index);
-                            playItem = dataManager.selectMusicItem(musicKey.content, musicKey.id);
-                        }
+                    if (musicItem.type == MusicItem.TYPE_BOOKMARK) { // ブックマークのみ（全て再生するまで同じ曲は選ばない）
+                        playItem = dataManager.drawBookmarkMusicItem();
                     }
                 } else {
                     playItem = musicItem;
@@ -578,10 +647,10 @@ public class AlarmClockWidget extends AppWidgetProvider implements
      * アクションをセット
      * @param context コンテキスト
      * @param action セットするアクション
-     * @param alarmId アラーム設定のID
+     * @param alarmIds アラーム設定のIDの配列（先頭が代表のアラーム）
      * @param triggerAtTime セットするUTC時刻
      */
-    private static void setAction(Context context, String action, long alarmId, long triggerAtTime) {
+    private static void setAction(Context context, String action, long[] alarmIds, long triggerAtTime) {
         try {
             // アラームマネージャの取得
             AlarmManager am = (AlarmManager)context.getSystemService(Context.ALARM_SERVICE);
@@ -589,7 +658,8 @@ public class AlarmClockWidget extends AppWidgetProvider implements
             // 発行するIntentの生成
             Intent intent = new Intent(context, AlarmClockWidget.class);
             intent.setAction(action);
-            intent.putExtra("alarm_id", alarmId);
+            intent.putExtra("alarm_id", alarmIds[0]);
+            intent.putExtra("alarm_ids", alarmIds);
             PendingIntent operation = PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
 
             // アクションをセット
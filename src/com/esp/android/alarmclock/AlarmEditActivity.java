@@ -664,7 +664,7 @@ public class AlarmEditActivity extends PreferenceActivity
             // 繰返しの初期設定
             mRepeatPreference.setValue(alarmSetting.repeat.toString());
             setAlarmYmd(alarmSetting.ymd.year, alarmSetting.ymd.month, alarmSetting.ymd.day);
-            setAlarmWeek(AlarmSetting.weekSetToInt(alarmSetting.week));
+            setAlarmWeek(alarmSetting.getWeekMask());
             setSummary(mRepeatPreference, alarmSetting.repeat);
 
             // アラーム音の初期設定
@@ -719,7 +719,7 @@ public class AlarmEditActivity extends PreferenceActivity
             alarmSetting.ymd.year = alarmYmd.year;
             alarmSetting.ymd.month = alarmYmd.month;
             alarmSetting.ymd.day = alarmYmd.day;
-            alarmSetting.week = AlarmSetting.intToWeekSet(getAlarmWeek());
+            alarmSetting.setWeekMask(getAlarmWeek());
             alarmSetting.repeat = AlarmSetting.Repeat.valueOf(mRepeatPreference.getValue());
             MusicKey musicKey = getMusicKey();
             alarmSetting.musicKey.content = musicKey.content;
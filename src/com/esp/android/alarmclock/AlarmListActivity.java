@@ -1,6 +1,7 @@
 package com.esp.android.alarmclock;
 
 import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.List;
 
@@ -15,6 +16,7 @@ import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.ListView;
@@ -28,6 +30,12 @@ public class AlarmListActivity extends Activity {
 
     // ダイアログのID
     private static final int DIALOG_ALARM_RESET = 1;
+    private static final int DIALOG_ALARM_SCHEDULE = 2;
+    private static final int DIALOG_ALARM_DELETE = 3;
+    private static final int DIALOG_MENU = 4;
+
+    // 予定ダイアログに表示する最大件数
+    private static final int SCHEDULE_MAX_COUNT = 100;
 
     // Adapterオブジェクト
     private AlarmSettingArrayAdapter mAdapter;
@@ -35,6 +43,15 @@ public class AlarmListActivity extends Activity {
     // リストビュー
     private ListView mListView;
 
+    // 追加ボタン
+    private Button mButtonAdd;
+
+    // 予定ボタン
+    private Button mButtonSchedule;
+
+    // 長押ししたアラーム設定
+    private AlarmSetting mClickSetting;
+
     /**
      * アラーム設定リストのViewHolder
      */
@@ -52,12 +69,22 @@ public class AlarmListActivity extends Activity {
     private class AlarmSettingArrayAdapter extends ArrayAdapter<AlarmSetting> {
         private final int mResourceId;
 
+        // 繰返しの表示用文字列（行毎に読み込まないように保持する）
+        private final String[] mWeekList;
+        private final String[] mWeekListValues;
+        private final String[] mRepeatList;
+        private final String[] mRepeatListValues;
+
         /**
          * コンストラクタ
          */
         public AlarmSettingArrayAdapter(Context context, int resourceId) {
             super(context, resourceId);
             mResourceId = resourceId;
+            mWeekList = getResources().getStringArray(R.array.week_list);
+            mWeekListValues = getResources().getStringArray(R.array.week_list_values);
+            mRepeatList = getResources().getStringArray(R.array.repeat_list);
+            mRepeatListValues = getResources().getStringArray(R.array.repeat_list_values);
         }
 
         /**
@@ -141,6 +168,36 @@ public class AlarmListActivity extends Activity {
                                 // アラームの開始
                                 startAlarm(selectSetting.id);
                                 return true;
+
+                            } else if ("listbenchmark".equals(selectSetting.title)) {
+                                // アラームが多い場合の一覧の表示と削除の時間を計測（結果はエラー一覧に出力）
+                                new AlarmListBenchmarkTask().execute(getApplicationContext());
+                                return true;
+
+                            } else if ("readbenchmark".equals(selectSetting.title)) {
+                                // 書き込み中の読み込みの待ち時間を計測（結果はエラー一覧に出力）
+                                new ReadLatencyBenchmarkTask().execute(getApplicationContext());
+                                return true;
+
+                            } else if ("decodebenchmark".equals(selectSetting.title)) {
+                                // カーソルの行からオブジェクトを生成する時間を計測（結果はエラー一覧に出力）
+                                new CursorDecodeBenchmarkTask().execute(getApplicationContext());
+                                return true;
+
+                            } else if ("queryplan".equals(selectSetting.title)) {
+                                // 音楽テーブルの検索の実行計画を確認（結果はエラー一覧に出力）
+                                new QueryPlanCheckTask().execute(getApplicationContext());
+                                return true;
+
+                            } else if ("holidaycheck".equals(selectSetting.title)) {
+                                // 休日の計算を以前の計算と比較（結果はエラー一覧に出力）
+                                new HolidayCheckTask().execute(getApplicationContext());
+                                return true;
+
+                            } else if ("benchmark".equals(selectSetting.title)) {
+                                // 次のアラーム日時の計算時間を計測（結果はエラー一覧に出力）
+                                new ScheduleBenchmarkTask().execute(getApplicationContext());
+                                return true;
                             }
                             return false;
                         }
@@ -162,6 +219,17 @@ public class AlarmListActivity extends Activity {
                             startAlarmEditActivity(selectSetting.id);
                         }
                     });
+                    holder.buttonEdit.setOnLongClickListener(new View.OnLongClickListener() {
+                        @Override
+                        public boolean onLongClick(View view) {
+                            // 長押しされたアイテムを取得
+                            mClickSetting = (AlarmSetting)getItem(((Integer)view.getTag()).intValue());
+
+                            // メニューダイアログを表示
+                            showDialog(DIALOG_MENU);
+                            return true;
+                        }
+                    });
                 }
 
                 // 編集ボタンに行番号をセット（常に最新状態にする）
@@ -173,22 +241,18 @@ public class AlarmListActivity extends Activity {
                 // 繰返しの表示
                 StringBuffer repeat = new StringBuffer();
                 if (alarmSetting.repeat == AlarmSetting.Repeat.SpecifyDay) { // 曜日指定
-                    String[] weekList = getResources().getStringArray(R.array.week_list);
-                    String[] weekListValues = getResources().getStringArray(R.array.week_list_values);
-                    for (int i=0; i<weekListValues.length; i++) {
-                        String str = weekList[i];
-                        String value = weekListValues[i];
-                        if (alarmSetting.week.contains(AlarmSetting.Week.valueOf(value))) {
+                    for (int i=0; i<mWeekListValues.length; i++) {
+                        String str = mWeekList[i];
+                        String value = mWeekListValues[i];
+                        if (alarmSetting.containsWeek(AlarmSetting.Week.valueOf(value))) {
                             repeat.append(str.substring(0,1));
                         }
                     }
                 } else { // その他
-                    String[] repeatList = getResources().getStringArray(R.array.repeat_list);
-                    String[] repeatListValues = getResources().getStringArray(R.array.repeat_list_values);
-                    for (int i=0; i<repeatListValues.length; i++) {
-                        String value = repeatListValues[i];
+                    for (int i=0; i<mRepeatListValues.length; i++) {
+                        String value = mRepeatListValues[i];
                         if (alarmSetting.repeat == AlarmSetting.Repeat.valueOf(value)) {
-                            repeat.append(repeatList[i]);
+                            repeat.append(mRepeatList[i]);
                             break;
                         }
                     }
@@ -272,14 +336,44 @@ public class AlarmListActivity extends Activity {
                 return;
             }
 
-            // Adapterオブジェクトにリスト項目を追加
-            for (AlarmSetting alarmSetting : alarmSettings) {
-                mAdapter.add(alarmSetting);
-            }
+            // Adapterオブジェクトにリスト項目を追加（件数が多くても通知は1回のみ）
+            mAdapter.addAll(alarmSettings);
 
             // リストビューにAdapterオブジェクトを設定
             mListView = (ListView)findViewById(R.id.alarm_listview);
             mListView.setAdapter(mAdapter);
+
+            // リストビューのアイテムが長押しされた時に呼び出されるリスナーを登録
+            mListView.setOnItemLongClickListener(new AdapterView.OnItemLongClickListener() {
+                @Override
+                public boolean onItemLongClick(AdapterView<?> parent, View view, int position, long id) {
+                    // 長押しされたアイテムを取得
+                    mClickSetting = (AlarmSetting)parent.getItemAtPosition(position);
+
+                    // メニューダイアログを表示
+                    showDialog(DIALOG_MENU);
+                    return true;
+                }
+            });
+
+            // 追加ボタン押下時の処理
+            mButtonAdd = (Button)findViewById(R.id.alarm_add_button);
+            mButtonAdd.setOnClickListener(new View.OnClickListener() {
+                public void onClick(View view) {
+                    // アラームを追加
+                    addAlarm();
+                }
+            });
+
+            // 予定ボタン押下時の処理
+            mButtonSchedule = (Button)findViewById(R.id.alarm_schedule_button);
+            mButtonSchedule.setOnClickListener(new View.OnClickListener() {
+                public void onClick(View view) {
+                    // 予定ダイアログを表示（表示する度に作り直す）
+                    removeDialog(DIALOG_ALARM_SCHEDULE);
+                    showDialog(DIALOG_ALARM_SCHEDULE);
+                }
+            });
         } catch (Exception e) {
             AlarmClockApp.outputError(getApplicationContext(), "Prepare content error!", e, true, true);
         }
@@ -298,9 +392,22 @@ public class AlarmListActivity extends Activity {
 
             // リストビュー
             if (mListView != null) {
+                mListView.setOnItemLongClickListener(null);
                 mListView.setAdapter(null);
                 mListView = null;
             }
+
+            // 追加ボタン
+            if (mButtonAdd != null) {
+                mButtonAdd.setOnClickListener(null);
+                mButtonAdd = null;
+            }
+
+            // 予定ボタン
+            if (mButtonSchedule != null) {
+                mButtonSchedule.setOnClickListener(null);
+                mButtonSchedule = null;
+            }
         } catch (Exception e) {
             AlarmClockApp.outputError(getApplicationContext(), "Release content error!", e, true, true);
         }
@@ -316,10 +423,41 @@ public class AlarmListActivity extends Activity {
         // アラームリセットダイアログを作成
         if (id == DIALOG_ALARM_RESET) {
             dialog = createAlarmResetDialog();
+
+        // アラーム削除ダイアログを作成
+        } else if (id == DIALOG_ALARM_DELETE) {
+            if (mClickSetting != null) {
+                dialog = createAlarmDeleteDialog();
+            }
+
+        // 予定ダイアログを作成
+        } else if (id == DIALOG_ALARM_SCHEDULE) {
+            dialog = createAlarmScheduleDialog();
+
+        // メニューダイアログを作成
+        } else if (id == DIALOG_MENU) {
+            if (mClickSetting != null) {
+                dialog = createMenuDialog();
+            }
         }
         return dialog;
     }
 
+    /**
+     * ダイアログ表示時の処理
+     */
+    @Override
+    public void onPrepareDialog(int id, Dialog dialog) {
+        super.onPrepareDialog(id, dialog);
+
+        // ダイアログのタイトルを設定
+        if (id == DIALOG_ALARM_DELETE || id == DIALOG_MENU) {
+            if (mClickSetting != null) {
+                ((AlertDialog)dialog).setTitle(mClickSetting.title);
+            }
+        }
+    }
+
     /**
      * アラームリセットダイアログを作成
      */
@@ -347,6 +485,149 @@ public class AlarmListActivity extends Activity {
         return dialog;
     }
 
+    /**
+     * メニューダイアログを作成
+     */
+    private Dialog createMenuDialog() {
+        Dialog dialog = null;
+        try {
+            AlertDialog.Builder ad = new AlertDialog.Builder(AlarmListActivity.this);
+            ad.setTitle(mClickSetting.title);
+            String[] menuList = getResources().getStringArray(R.array.alarmlist_menu_list);
+            ad.setItems(menuList, new DialogInterface.OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    dialog.cancel();
+
+                    // 編集
+                    if (which == 0) {
+                        startAlarmEditActivity(mClickSetting.id);
+
+                    // 削除
+                    } else if (which == 1) {
+                        showDialog(DIALOG_ALARM_DELETE);
+                    }
+                }
+            });
+            ad.setNegativeButton(R.string.cancel_label, null);
+            dialog = ad.create();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(getApplicationContext(), "Create menu dialog error!", e, true, true);
+        }
+        return dialog;
+    }
+
+    /**
+     * アラーム削除ダイアログを作成
+     */
+    private Dialog createAlarmDeleteDialog() {
+        Dialog dialog = null;
+        try {
+            AlertDialog.Builder ad = new AlertDialog.Builder(AlarmListActivity.this);
+            ad.setTitle(mClickSetting.title);
+            ad.setMessage(R.string.delete_alarm_message);
+            ad.setPositiveButton(R.string.ok_label, new OnClickListener() {
+                @Override
+                public void onClick(DialogInterface dialog, int which) {
+                    // アラームを削除
+                    deleteAlarm(mClickSetting);
+                }
+            });
+            ad.setNegativeButton(R.string.cancel_label, null);
+            dialog = ad.create();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(getApplicationContext(), "Create alarm delete dialog error!", e, true, true);
+        }
+        return dialog;
+    }
+
+    /**
+     * 予定ダイアログを作成
+     * （今後30日間のアラーム日時を日時順に表示）
+     */
+    private Dialog createAlarmScheduleDialog() {
+        Dialog dialog = null;
+        try {
+            AlertDialog.Builder ad = new AlertDialog.Builder(AlarmListActivity.this);
+            ad.setTitle(R.string.schedule_label);
+
+            // 全てのアラーム設定の予定をまとめて取得
+            DataManager dataManager = new DataManager(getApplicationContext());
+            List<AlarmSetting> alarmSettings = dataManager.selectAlarmSettings();
+            List<AlarmProjection.Occurrence> occurrences = null;
+            if (alarmSettings != null) {
+                long now = System.currentTimeMillis();
+                occurrences = AlarmProjection.project(alarmSettings, now,
+                        now + AlarmProjection.DEFAULT_DAYS * AlarmProjection.DAY_IN_MILLIS, SCHEDULE_MAX_COUNT);
+            }
+
+            if (occurrences == null || occurrences.size() == 0) {
+                ad.setMessage(R.string.no_schedule_message);
+            } else {
+                SimpleDateFormat format = new SimpleDateFormat("yyyy/MM/dd(E) HH:mm");
+                String[] items = new String[occurrences.size()];
+                for (int i = 0; i < items.length; i++) {
+                    AlarmProjection.Occurrence occurrence = occurrences.get(i);
+                    items[i] = format.format(new Date(occurrence.timeInMillis)) + "  " + occurrence.setting.title;
+                }
+                ad.setItems(items, null);
+            }
+            ad.setNegativeButton(R.string.close_label, null);
+            dialog = ad.create();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(getApplicationContext(), "Create alarm schedule dialog error!", e, true, true);
+        }
+        return dialog;
+    }
+
+    /**
+     * アラームの追加
+     */
+    private void addAlarm() {
+        try {
+            // 最大ID+1で追加する
+            DataManager dataManager = new DataManager(getApplicationContext());
+            AlarmSetting alarmSetting = new AlarmSetting();
+            alarmSetting.id = dataManager.getMaxAlarmSettingId() + 1;
+            String alarmLabel = getResources().getString(R.string.alarm_label);
+            alarmSetting.title = alarmLabel + Long.toString(alarmSetting.id + 1);
+            if (dataManager.insertAlarmSetting(alarmSetting)) {
+                // アラーム編集画面を表示
+                startAlarmEditActivity(alarmSetting.id);
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(getApplicationContext(), "Add alarm error!", e, true, true);
+        }
+    }
+
+    /**
+     * アラームの削除
+     * @param alarmSetting アラーム設定
+     */
+    private void deleteAlarm(AlarmSetting alarmSetting) {
+        try {
+            DataManager dataManager = new DataManager(getApplicationContext());
+            if (dataManager.deleteAlarmSetting(alarmSetting.id)) {
+                // 鳴動中・スヌーズ中・次に鳴らすアラームの場合のみ停止して設定し直す
+                // （他のアラームと同時に鳴らす場合は、鳴らす時に削除済みのアラームを除く）
+                long currentId = AlarmStateStore.get(getApplicationContext()).alarmId;
+                if (alarmSetting.onOff != 0 && alarmSetting.id == currentId) {
+                    AlarmClockWidget.stopAlarm(getApplicationContext());
+                    AlarmClockWidget.finishAlarmStopActivity(getApplicationContext());
+                    AlarmClockWidget.finishSnoozeReleaseActivity(getApplicationContext());
+                    AlarmClockWidget.setAlarm(getApplicationContext());
+                }
+
+                // 表示更新
+                if (mAdapter != null) {
+                    mAdapter.remove(alarmSetting);
+                }
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(getApplicationContext(), "Delete alarm error!", e, true, true);
+        }
+    }
+
     /**
      * アラームの開始
      * @param settingId アラーム設定のID
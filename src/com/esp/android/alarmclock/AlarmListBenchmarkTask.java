@@ -0,0 +1,99 @@
+package com.esp.android.alarmclock;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.widget.ArrayAdapter;
+
+/**
+ * アラームが多い場合の一覧の表示と削除の時間を計測するための非同期タスク（テスト用）
+ * （計測用のアラーム（OFF）を追加して、一覧の取得・Adapterへの追加・1件ずつの削除の時間を
+ *   エラー情報に出力する。追加したアラームは最後に全て削除する）
+ */
+public class AlarmListBenchmarkTask extends AsyncTask<Context, Void, Void> {
+
+    // 追加するアラームの件数
+    private static final int ALARM_COUNT = 10000;
+
+    // 計測用のアラーム名
+    private static final String TITLE = "benchmark";
+
+    /**
+     * バックグラウンドで実行される処理
+     */
+    @Override
+    protected Void doInBackground(Context... arg) {
+        Context context = arg[0];
+        DataManager dataManager = new DataManager(context);
+        long firstId = dataManager.getMaxAlarmSettingId() + 1;
+        long lastId = firstId - 1;
+        boolean bDeleted = false;
+        try {
+            DecimalFormat f = new DecimalFormat("#,##0.000");
+
+            // 計測用のアラームを追加（鳴らないようにOFFにする）
+            long start = System.nanoTime();
+            for (int i = 0; i < ALARM_COUNT; i++) {
+                AlarmSetting setting = new AlarmSetting();
+                setting.id = firstId + i;
+                setting.onOff = 0;
+                setting.title = TITLE + i;
+                if (!dataManager.insertAlarmSetting(setting)) {
+                    break;
+                }
+                lastId = setting.id;
+            }
+            long insert = System.nanoTime() - start;
+
+            // 一覧の表示（アラーム一覧の取得とAdapterへの追加）
+            start = System.nanoTime();
+            List<AlarmSetting> settings = dataManager.selectAlarmSettings();
+            long select = System.nanoTime() - start;
+            ArrayAdapter<AlarmSetting> adapter = new ArrayAdapter<AlarmSetting>(context, R.layout.alarm_list_row);
+            start = System.nanoTime();
+            adapter.addAll(settings);
+            long addAll = System.nanoTime() - start;
+
+            // 計測用のアラームを1件ずつ削除（DBとAdapterの時間を分けて計測する）
+            List<AlarmSetting> targets = new ArrayList<AlarmSetting>();
+            for (AlarmSetting setting : settings) {
+                if (setting.id >= firstId) {
+                    targets.add(setting);
+                }
+            }
+            long delete = 0;
+            long remove = 0;
+            for (AlarmSetting setting : targets) {
+                start = System.nanoTime();
+                dataManager.deleteAlarmSetting(setting.id);
+                delete += System.nanoTime() - start;
+                start = System.nanoTime();
+                adapter.remove(setting);
+                remove += System.nanoTime() - start;
+            }
+            bDeleted = true;
+            int n = Math.max(1, targets.size());
+
+            String info = "Alarm list benchmark (" + settings.size() + " rows): " +
+                          "insert " + f.format(insert / 1e6 / n) + " ms/op, " +
+                          "select " + f.format(select / 1e6) + " ms, " +
+                          "addAll " + f.format(addAll / 1e6) + " ms, " +
+                          "delete " + f.format(delete / 1e6 / n) + " ms/op, " +
+                          "remove " + f.format(remove / 1e6 / n) + " ms/op";
+            AlarmClockApp.outputError(context, info, null, false, true);
+        } catch (Exception e) {
+            AlarmClockApp.outputError(context, "Alarm list benchmark error!", e, true, true);
+        } finally {
+            // 途中で終了した場合は、残っている計測用のアラームを削除
+            if (!bDeleted) {
+                for (long id = firstId; id <= lastId; id++) {
+                    dataManager.deleteAlarmSetting(id);
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package com.esp.android.alarmclock;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 複数のアラーム設定の今後のアラーム日時を日時順に並べるクラス
+ */
+public class AlarmProjection {
+
+    // 予定を取得する日数のデフォルト
+    public static final int DEFAULT_DAYS = 30;
+
+    // 1日のミリ秒
+    static final long DAY_IN_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * アラームの予定
+     */
+    public static class Occurrence {
+        // アラーム設定
+        final AlarmSetting setting;
+
+        // アラーム日時（UTC）
+        final long timeInMillis;
+
+        /**
+         * コンストラクタ
+         */
+        Occurrence(AlarmSetting setting, long timeInMillis) {
+            this.setting = setting;
+            this.timeInMillis = timeInMillis;
+        }
+    }
+
+    /**
+     * マージ用のヒープの要素（アラーム設定毎のIteratorの先頭）
+     */
+    private static class Head implements Comparable<Head> {
+        // アラーム設定
+        final AlarmSetting setting;
+
+        // アラーム日時のIterator
+        final Iterator<Long> iterator;
+
+        // 先頭のアラーム日時（UTC）
+        long timeInMillis;
+
+        /**
+         * コンストラクタ
+         */
+        Head(AlarmSetting setting, Iterator<Long> iterator) {
+            this.setting = setting;
+            this.iterator = iterator;
+        }
+
+        /**
+         * 比較する
+         */
+        @Override
+        public int compareTo(Head another) {
+            if (timeInMillis < another.timeInMillis) {
+                return -1;
+            } else if (timeInMillis > another.timeInMillis) {
+                return 1;
+            }
+            if (setting.id < another.setting.id) {
+                return -1;
+            } else if (setting.id > another.setting.id) {
+                return 1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * 今後30日間のアラームの予定を取得
+     * @param settings アラーム設定のリスト
+     * @param fromEpochMillis 基準日時（UTC）
+     * @return アラームの予定のリスト（日時順）
+     */
+    public static List<Occurrence> project(List<AlarmSetting> settings, long fromEpochMillis) {
+        return project(settings, fromEpochMillis, fromEpochMillis + DEFAULT_DAYS * DAY_IN_MILLIS);
+    }
+
+    /**
+     * 指定期間のアラームの予定を取得
+     * @param settings アラーム設定のリスト
+     * @param fromEpochMillis 開始日時（UTC、この日時は含まない）
+     * @param toEpochMillis 終了日時（UTC、この日時を含む）
+     * @return アラームの予定のリスト（日時順）
+     */
+    public static List<Occurrence> project(List<AlarmSetting> settings, long fromEpochMillis, long toEpochMillis) {
+        return project(settings, fromEpochMillis, toEpochMillis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 指定期間のアラームの予定を先頭から指定件数まで取得
+     * （指定件数に達したら残りのアラーム日時は計算しない）
+     * @param settings アラーム設定のリスト
+     * @param fromEpochMillis 開始日時（UTC、この日時は含まない）
+     * @param toEpochMillis 終了日時（UTC、この日時を含む）
+     * @param maxCount 最大件数
+     * @return アラームの予定のリスト（日時順）
+     */
+    public static List<Occurrence> project(List<AlarmSetting> settings, long fromEpochMillis, long toEpochMillis, int maxCount) {
+        List<Occurrence> occurrences = new ArrayList<Occurrence>();
+
+        // アラームONの設定毎に最初のアラーム日時をヒープに追加
+        PriorityQueue<Head> heap = new PriorityQueue<Head>(Math.max(1, settings.size()));
+        for (AlarmSetting setting : settings) {
+            if (setting.onOff == 0) {
+                continue;
+            }
+            Head head = new Head(setting, setting.occurrences(fromEpochMillis));
+            if (advance(head, toEpochMillis)) {
+                heap.add(head);
+            }
+        }
+
+        // 最も早いアラーム日時を取り出して、同じ設定の次のアラーム日時を戻す
+        while (!heap.isEmpty() && occurrences.size() < maxCount) {
+            Head head = heap.poll();
+            occurrences.add(new Occurrence(head.setting, head.timeInMillis));
+            if (advance(head, toEpochMillis)) {
+                heap.add(head);
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Iteratorを次のアラーム日時に進める
+     * @param head ヒープの要素
+     * @param toEpochMillis 終了日時（UTC）
+     * @return 終了日時までにアラーム日時がある場合はtrue
+     */
+    private static boolean advance(Head head, long toEpochMillis) {
+        if (!head.iterator.hasNext()) {
+            return false;
+        }
+        long timeInMillis = head.iterator.next().longValue();
+        if (timeInMillis > toEpochMillis) {
+            return false;
+        }
+        head.timeInMillis = timeInMillis;
+        return true;
+    }
+}
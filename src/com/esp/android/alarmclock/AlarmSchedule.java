@@ -0,0 +1,161 @@
+package com.esp.android.alarmclock;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+/**
+ * アラーム設定の日時に関する値だけをまとめた変更不可のクラス
+ * （次のアラーム日時の計算用）
+ */
+public final class AlarmSchedule {
+
+    // 繰返し
+    final AlarmSetting.Repeat repeat;
+
+    // 曜日のビットマスク（ビット0が日曜日）
+    final int weekMask;
+
+    // 0時からの分
+    final int minuteOfDay;
+
+    // 年月日（1回のみの場合、月は0～11）
+    final int year;
+    final int month;
+    final int day;
+
+    /**
+     * コンストラクタ
+     * @param setting アラーム設定
+     */
+    public AlarmSchedule(AlarmSetting setting) {
+        this.repeat = setting.repeat;
+        this.weekMask = setting.getWeekMask();
+        this.minuteOfDay = setting.hour * 60 + setting.minute;
+        this.year = setting.ymd.year;
+        this.month = setting.ymd.month;
+        this.day = setting.ymd.day;
+    }
+
+    /**
+     * アラーム設定と同じ値かどうか
+     * @param setting アラーム設定
+     * @return 同じ値の場合はtrue
+     */
+    boolean matches(AlarmSetting setting) {
+        return repeat == setting.repeat &&
+               minuteOfDay == setting.hour * 60 + setting.minute &&
+               year == setting.ymd.year &&
+               month == setting.ymd.month &&
+               day == setting.ymd.day &&
+               weekMask == setting.getWeekMask();
+    }
+
+    /**
+     * 指定日時より後の次のアラーム日時を取得
+     * @param now 基準日時（UTC）
+     * @return GregorianCalendar
+     */
+    public GregorianCalendar getNextCalendar(long now) {
+        // 時刻を設定
+        GregorianCalendar nextCalendar = new GregorianCalendar();
+        nextCalendar.setTimeInMillis(now);
+        nextCalendar.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        nextCalendar.set(Calendar.MINUTE, minuteOfDay % 60);
+        nextCalendar.set(Calendar.SECOND, 0);
+        nextCalendar.set(Calendar.MILLISECOND, 0);
+
+        // 毎日
+        if (repeat == AlarmSetting.Repeat.Daily) {
+            // 現在日時より後でなければ翌日にする
+            if (nextCalendar.getTimeInMillis() <= now) {
+                nextCalendar.add(Calendar.DATE, 1);
+            }
+
+        // 曜日指定
+        } else if (repeat == AlarmSetting.Repeat.SpecifyDay) {
+            // 曜日が指定されていなければnull
+            if (weekMask == 0) {
+                return null;
+            }
+
+            // 現在日時より後でなければ翌日から探す
+            int dayIndex = nextCalendar.get(Calendar.DAY_OF_WEEK) - 1;
+            int offset = (nextCalendar.getTimeInMillis() > now) ? 0 : 1;
+
+            // 次の指定曜日までの日数を加算（最大７日）
+            offset += nextWeekOffset(weekMask, (dayIndex + offset) % 7);
+            nextCalendar.add(Calendar.DATE, offset);
+
+        // 平日（休日除く）
+        } else if (repeat == AlarmSetting.Repeat.Weekday) {
+            // 曜日が指定されていなければnull
+            if (weekMask == 0) {
+                return null;
+            }
+
+            // 現在日時より後でなければ翌日から探す
+            int dayIndex = nextCalendar.get(Calendar.DAY_OF_WEEK) - 1;
+            int offset = (nextCalendar.getTimeInMillis() > now) ? 0 : 1;
+
+            // 指定曜日のみ最大36日分チェック
+            boolean check=false;
+            int moved = 0;
+            offset += nextWeekOffset(weekMask, (dayIndex + offset) % 7);
+            while (offset < 36) {
+                nextCalendar.add(Calendar.DATE, offset - moved);
+                moved = offset;
+                int y = nextCalendar.get(Calendar.YEAR);
+                int m = nextCalendar.get(Calendar.MONTH)+1;
+                int d = nextCalendar.get(Calendar.DATE);
+                if (!Holiday.isHoliday(y, m, d)) {
+                    check = true;
+                    break;
+                }
+                offset += 1 + nextWeekOffset(weekMask, (dayIndex + offset + 1) % 7);
+            }
+            // チェックできなければnull
+            if (!check) {
+                return null;
+            }
+
+        // 日曜/休日
+        } else if (repeat == AlarmSetting.Repeat.DayOff) {
+            // 現在日時より後でなければ翌日から探す
+            int y = nextCalendar.get(Calendar.YEAR);
+            int m = nextCalendar.get(Calendar.MONTH)+1;
+            int d = nextCalendar.get(Calendar.DATE);
+            long today = CivilDate.epochDay(y, m, d);
+            long start = (nextCalendar.getTimeInMillis() > now) ? today : today + 1;
+
+            // 次の休日までの日数を加算
+            long holiday = Holiday.nextHoliday(start);
+            nextCalendar.add(Calendar.DATE, (int)(holiday - today));
+
+        // 1回のみ
+        } else if (repeat == AlarmSetting.Repeat.OnceOnly) {
+            // 年月日を設定
+            nextCalendar.set(Calendar.YEAR, year);
+            nextCalendar.set(Calendar.MONTH, month);
+            nextCalendar.set(Calendar.DATE, day);
+
+            // 現在日時より後でなければnull
+            if (nextCalendar.getTimeInMillis() <= now) {
+                return null;
+            }
+        }
+
+        return nextCalendar;
+    }
+
+    /**
+     * 指定した曜日から次にビットが立っている曜日までの日数を取得する
+     * @param mask 曜日のビットマスク（0以外）
+     * @param dayIndex 曜日（0:日曜日～6:土曜日）
+     * @return 日数（0～6）
+     */
+    static int nextWeekOffset(int mask, int dayIndex) {
+        // １週間分を２つ並べて指定した曜日から先の最下位ビットを探す
+        int mask2 = (mask & 0x7F) | ((mask & 0x7F) << 7);
+        return Integer.numberOfTrailingZeros(mask2 >>> dayIndex);
+    }
+}
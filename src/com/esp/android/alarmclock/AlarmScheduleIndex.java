@@ -0,0 +1,204 @@
+package com.esp.android.alarmclock;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import android.content.Context;
+
+/**
+ * 次に鳴らすアラームを管理するインデックス
+ * （次のアラーム日時の昇順に並んだヒープ）
+ */
+public class AlarmScheduleIndex {
+
+    /**
+     * インデックスの要素
+     */
+    static class Entry implements Comparable<Entry> {
+        // アラーム設定
+        final AlarmSetting setting;
+
+        // 次のアラーム日時（UTC）
+        final long timeInMillis;
+
+        /**
+         * コンストラクタ
+         */
+        Entry(AlarmSetting setting, long timeInMillis) {
+            this.setting = setting;
+            this.timeInMillis = timeInMillis;
+        }
+
+        /**
+         * 比較する
+         */
+        @Override
+        public int compareTo(Entry another) {
+            if (timeInMillis < another.timeInMillis) {
+                return -1;
+            } else if (timeInMillis > another.timeInMillis) {
+                return 1;
+            }
+            if (setting.id < another.setting.id) {
+                return -1;
+            } else if (setting.id > another.setting.id) {
+                return 1;
+            }
+            return 0;
+        }
+    }
+
+    // 次のアラーム日時の昇順に並んだヒープ（古い要素は取り出す時に読み飛ばす）
+    private static final PriorityQueue<Entry> sHeap = new PriorityQueue<Entry>();
+
+    // アラーム設定のIDと最新の要素の対応
+    private static final Map<Long, Entry> sEntries = new HashMap<Long, Entry>();
+
+    // DBから読み込み済みフラグ
+    private static boolean bLoaded = false;
+
+    /**
+     * 次に鳴らすアラームを取得
+     * @param context コンテキスト
+     * @return 次に鳴らすアラーム（なければnull）
+     */
+    public static synchronized Entry getNext(Context context) {
+        // 初回のみDBから読み込む
+        if (!bLoaded) {
+            if (!load(context)) {
+                return null;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        while (!sHeap.isEmpty()) {
+            Entry entry = sHeap.peek();
+
+            // 更新・削除済みの要素は読み飛ばす
+            if (sEntries.get(entry.setting.id) != entry) {
+                sHeap.poll();
+                continue;
+            }
+
+            // 鳴動済みの要素は次のアラーム日時を計算し直す
+            if (entry.timeInMillis <= now) {
+                sHeap.poll();
+                sEntries.remove(entry.setting.id);
+                add(entry.setting);
+                continue;
+            }
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * 次に鳴らすアラームを同じ日時のもの全て取得
+     * @param context コンテキスト
+     * @return 次に鳴らすアラームのリスト（IDの昇順、なければ空）
+     */
+    public static synchronized List<Entry> getNextGroup(Context context) {
+        List<Entry> group = new ArrayList<Entry>();
+        Entry first = getNext(context);
+        if (first == null) {
+            return group;
+        }
+
+        // 同じ日時の要素を取り出す（更新・削除済みの要素は読み飛ばす）
+        while (!sHeap.isEmpty() && sHeap.peek().timeInMillis == first.timeInMillis) {
+            Entry entry = sHeap.poll();
+            if (sEntries.get(entry.setting.id) == entry) {
+                group.add(entry);
+            }
+        }
+
+        // 取り出した要素をヒープに戻す
+        sHeap.addAll(group);
+        return group;
+    }
+
+    /**
+     * アラーム設定の追加・更新を反映
+     * @param setting アラーム設定
+     */
+    public static synchronized void put(AlarmSetting setting) {
+        if (!bLoaded) {
+            return;
+        }
+        sEntries.remove(setting.id);
+        add(new AlarmSetting(setting));
+        compact();
+    }
+
+    /**
+     * アラーム設定の削除を反映
+     * @param id アラーム設定のID
+     */
+    public static synchronized void remove(long id) {
+        if (!bLoaded) {
+            return;
+        }
+        sEntries.remove(id);
+        compact();
+    }
+
+    /**
+     * インデックスを破棄（次回取得時にDBから読み込み直す）
+     */
+    public static synchronized void invalidate() {
+        sHeap.clear();
+        sEntries.clear();
+        bLoaded = false;
+    }
+
+    /**
+     * DBから全てのアラーム設定を読み込む
+     * @param context コンテキスト
+     * @return 読み込んだ場合はtrue
+     */
+    private static boolean load(Context context) {
+        DataManager dataManager = new DataManager(context);
+        List<AlarmSetting> alarmSettings = dataManager.selectAlarmSettings();
+        if (alarmSettings == null) {
+            return false;
+        }
+        sHeap.clear();
+        sEntries.clear();
+        for (AlarmSetting alarmSetting : alarmSettings) {
+            add(alarmSetting);
+        }
+        bLoaded = true;
+        return true;
+    }
+
+    /**
+     * 次のアラーム日時を計算してヒープに追加
+     * @param setting アラーム設定
+     */
+    private static void add(AlarmSetting setting) {
+        if (setting.onOff == 0) { // アラームONのみ
+            return;
+        }
+        GregorianCalendar calendar = setting.getNextCalendar();
+        if (calendar == null) {
+            return;
+        }
+        Entry entry = new Entry(setting, calendar.getTimeInMillis());
+        sEntries.put(setting.id, entry);
+        sHeap.add(entry);
+    }
+
+    /**
+     * 読み飛ばす要素が増えすぎた場合はヒープを作り直す
+     */
+    private static void compact() {
+        if (sHeap.size() > sEntries.size() * 2 + 16) {
+            sHeap.clear();
+            sHeap.addAll(sEntries.values());
+        }
+    }
+}
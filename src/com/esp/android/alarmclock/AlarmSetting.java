@@ -3,6 +3,8 @@ package com.esp.android.alarmclock;
 import java.util.Calendar;
 import java.util.EnumSet;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * アラーム毎の設定値をあらわすクラス
@@ -53,7 +55,8 @@ public class AlarmSetting {
             return null;
         }
     };
-    EnumSet<Week> week;
+    // 曜日のビットマスク（ビット0が日曜日、DBの値と同じ）
+    private int weekMask;
 
     // 年月日
     public class Ymd {
@@ -103,6 +106,9 @@ public class AlarmSetting {
     // スヌーズ回数
     int snoozeTimes;
 
+    // コンパイル済みのスケジュール（DBから読み込んだ時に作成）
+    AlarmSchedule schedule;
+
     /**
      * コンストラクタ
      */
@@ -111,7 +117,7 @@ public class AlarmSetting {
         this.onOff = 0;
         this.title = "";
         this.repeat = Repeat.Daily;
-        this.week = EnumSet.allOf(Week.class);
+        this.weekMask = weekSetToInt(EnumSet.allOf(Week.class));
         this.ymd = new Ymd(0,0,0);
         this.hour = 0;
         this.minute = 0;
@@ -124,7 +130,29 @@ public class AlarmSetting {
         this.snoozeLength = 10;
         this.snoozeTimes = 5;
     }
-    
+
+    /**
+     * コピーコンストラクタ
+     */
+    public AlarmSetting(AlarmSetting setting) {
+        this.id = setting.id;
+        this.onOff = setting.onOff;
+        this.title = setting.title;
+        this.repeat = setting.repeat;
+        this.weekMask = setting.weekMask;
+        this.ymd = new Ymd(setting.ymd.year, setting.ymd.month, setting.ymd.day);
+        this.hour = setting.hour;
+        this.minute = setting.minute;
+        this.musicKey = new MusicKey(setting.musicKey);
+        this.musicVolume = setting.musicVolume;
+        this.musicLength = setting.musicLength;
+        this.voice = setting.voice;
+        this.vibrator = setting.vibrator;
+        this.snoozeMode = setting.snoozeMode;
+        this.snoozeLength = setting.snoozeLength;
+        this.snoozeTimes = setting.snoozeTimes;
+        this.schedule = setting.schedule;
+    }
 
     /**
      * 次のアラーム日時を取得
@@ -132,97 +160,126 @@ public class AlarmSetting {
      */
     public GregorianCalendar getNextCalendar() {
         // 現在日時を取得
-        GregorianCalendar nowCalendar = new GregorianCalendar();
-
-        // 時刻を設定
-        GregorianCalendar nextCalendar = new GregorianCalendar();
-        nextCalendar.set(Calendar.HOUR_OF_DAY, hour);
-        nextCalendar.set(Calendar.MINUTE, minute);
-        nextCalendar.set(Calendar.SECOND, 0);
-        nextCalendar.set(Calendar.MILLISECOND, 0);
-
-        // 毎日
-        if (repeat == Repeat.Daily) {
-            // 現在日時より後でなければ翌日にする
-            if (!nextCalendar.after(nowCalendar)) {
-                nextCalendar.add(Calendar.DATE, 1);
-            }
+        return getNextCalendar(System.currentTimeMillis());
+    }
 
-        // 曜日指定
-        } else if (repeat == Repeat.SpecifyDay) {
-            // 最大８日分チェック
-            boolean check=false;
-            for (int i=0; i<8; i++) {
-                int dayOfWeek = nextCalendar.get(Calendar.DAY_OF_WEEK);
-                if (week.contains(Week.valueOf(dayOfWeek))) {
-                    // 現在日時より後であること
-                    if (nextCalendar.after(nowCalendar)) {
-                        check = true;
-                        break;
-                    }
-                }
-                nextCalendar.add(Calendar.DATE, 1);
-            }
-            // チェックできなければnull
-            if (!check) {
-                return null;
-            }
+    /**
+     * 指定日時より後の次のアラーム日時を取得
+     * @param now 基準日時（UTC）
+     * @return GregorianCalendar
+     */
+    public GregorianCalendar getNextCalendar(long now) {
+        return getSchedule().getNextCalendar(now);
+    }
 
-        // 平日（休日除く）
-        } else if (repeat == Repeat.Weekday) {
-            // 最大36日分チェック
-            boolean check=false;
-            for (int i=0; i<36; i++) {
-                int dayOfWeek = nextCalendar.get(Calendar.DAY_OF_WEEK);
-                if (week.contains(Week.valueOf(dayOfWeek))) {
-                    int year = nextCalendar.get(Calendar.YEAR);
-                    int month = nextCalendar.get(Calendar.MONTH)+1;
-                    int day = nextCalendar.get(Calendar.DATE);
-                    if (!Holiday.isHoliday(year, month, day)) {
-                        // 現在日時より後であること
-                        if (nextCalendar.after(nowCalendar)) {
-                            check = true;
-                            break;
-                        }
-                    }
-                }
-                nextCalendar.add(Calendar.DATE, 1);
-            }
-            // チェックできなければnull
-            if (!check) {
-                return null;
-            }
+    /**
+     * コンパイル済みのスケジュールを取得
+     * （フィールドが変更されている場合は作り直す）
+     * @return AlarmSchedule
+     */
+    AlarmSchedule getSchedule() {
+        AlarmSchedule current = schedule;
+        if (current == null || !current.matches(this)) {
+            current = new AlarmSchedule(this);
+            schedule = current;
+        }
+        return current;
+    }
 
-        // 日曜/休日
-        } else if (repeat == Repeat.DayOff) {
-            // 見つかるまでチェック
-            while (true) {
-                int year = nextCalendar.get(Calendar.YEAR);
-                int month = nextCalendar.get(Calendar.MONTH)+1;
-                int day = nextCalendar.get(Calendar.DATE);
-                if (Holiday.isHoliday(year, month, day)) {
-                    // 現在日時より後であること
-                    if (nextCalendar.after(nowCalendar)) {
-                        break;
-                    }
+    /**
+     * 指定日時より後のアラーム日時を順番に返すIteratorを取得
+     * @param fromEpochMillis 基準日時（UTC）
+     * @return アラーム日時（UTC）のIterator
+     */
+    public Iterator<Long> occurrences(long fromEpochMillis) {
+        return new OccurrenceIterator(fromEpochMillis);
+    }
+
+    /**
+     * アラーム日時を順番に返すIterator
+     * （次のアラーム日時は要求された時に計算する）
+     */
+    private class OccurrenceIterator implements Iterator<Long> {
+        // 前回返したアラーム日時
+        private long mLast;
+
+        // 次に返すアラーム日時（未計算の場合はnull）
+        private GregorianCalendar mNext;
+
+        // 終了フラグ
+        private boolean bEnd = false;
+
+        /**
+         * コンストラクタ
+         */
+        OccurrenceIterator(long fromEpochMillis) {
+            mLast = fromEpochMillis;
+        }
+
+        /**
+         * 次のアラーム日時があるかどうか
+         */
+        @Override
+        public boolean hasNext() {
+            if (mNext == null && !bEnd) {
+                mNext = getNextCalendar(mLast);
+                if (mNext == null) {
+                    bEnd = true;
                 }
-                nextCalendar.add(Calendar.DATE, 1);
             }
+            return mNext != null;
+        }
 
-        // 1回のみ
-        } else if (repeat == Repeat.OnceOnly) {
-            // 年月日を設定
-            nextCalendar.set(Calendar.YEAR, ymd.year);
-            nextCalendar.set(Calendar.MONTH, ymd.month);
-            nextCalendar.set(Calendar.DATE, ymd.day);
+        /**
+         * 次のアラーム日時を取得
+         */
+        @Override
+        public Long next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            mLast = mNext.getTimeInMillis();
+            mNext = null;
 
-            // 現在日時より後でなければnull
-            if (!nextCalendar.after(nowCalendar)) {
-                return null;
+            // 1回のみは1件で終了
+            if (repeat == Repeat.OnceOnly) {
+                bEnd = true;
             }
+            return Long.valueOf(mLast);
         }
 
-        return nextCalendar;
+        /**
+         * 削除（未サポート）
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * 曜日のビットマスクを設定
+     * @param weekMask 曜日のビットマスク（ビット0が日曜日）
+     */
+    public void setWeekMask(int weekMask) {
+        this.weekMask = weekMask;
+    }
+
+    /**
+     * 曜日のビットマスクを取得
+     * @return 曜日のビットマスク（ビット0が日曜日）
+     */
+    public int getWeekMask() {
+        return weekMask;
+    }
+
+    /**
+     * 曜日が設定されているかどうか
+     * @param w 曜日
+     * @return 設定されている場合はtrue
+     */
+    public boolean containsWeek(Week w) {
+        return (weekMask & (1 << w.ordinal())) != 0;
     }
 
     /**
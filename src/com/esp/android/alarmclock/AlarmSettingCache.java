@@ -0,0 +1,92 @@
+package com.esp.android.alarmclock;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DBから読み込んだアラーム設定のキャッシュ
+ * （アラーム設定テーブルを更新した時に破棄する）
+ */
+public class AlarmSettingCache {
+
+    // アラーム設定のIDとアラーム設定の対応
+    private static final Map<Long, AlarmSetting> sSettings = new HashMap<Long, AlarmSetting>();
+
+    // 破棄した回数（破棄より前に読み込んだアラーム設定を追加しないようにする）
+    private static long sGeneration = 0;
+
+    // キャッシュから取得できた回数
+    private static long sHitCount = 0;
+
+    // キャッシュから取得できなかった回数
+    private static long sMissCount = 0;
+
+    /**
+     * アラーム設定を取得
+     * @param id アラーム設定のID
+     * @return アラーム設定のコピー（なければnull）
+     */
+    public static synchronized AlarmSetting get(long id) {
+        AlarmSetting setting = sSettings.get(id);
+        if (setting == null) {
+            sMissCount++;
+            return null;
+        }
+        sHitCount++;
+        return new AlarmSetting(setting);
+    }
+
+    /**
+     * DBから読み込んだアラーム設定を追加
+     * @param setting アラーム設定
+     * @param generation 読み込む前に取得した破棄した回数
+     */
+    public static synchronized void put(AlarmSetting setting, long generation) {
+        // 読み込んでいる間に破棄された場合は追加しない
+        if (generation != sGeneration) {
+            return;
+        }
+        sSettings.put(setting.id, new AlarmSetting(setting));
+    }
+
+    /**
+     * 破棄した回数を取得
+     * @return 破棄した回数
+     */
+    public static synchronized long getGeneration() {
+        return sGeneration;
+    }
+
+    /**
+     * アラーム設定を破棄
+     * @param id アラーム設定のID
+     */
+    public static synchronized void invalidate(long id) {
+        sSettings.remove(id);
+        sGeneration++;
+    }
+
+    /**
+     * 全てのアラーム設定を破棄
+     */
+    public static synchronized void invalidateAll() {
+        sSettings.clear();
+        sGeneration++;
+    }
+
+    /**
+     * キャッシュから取得できた回数を取得
+     * @return 回数
+     */
+    public static synchronized long getHitCount() {
+        return sHitCount;
+    }
+
+    /**
+     * キャッシュから取得できなかった回数を取得
+     * @return 回数
+     */
+    public static synchronized long getMissCount() {
+        return sMissCount;
+    }
+}
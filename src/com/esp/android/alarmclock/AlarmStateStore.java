@@ -0,0 +1,162 @@
+package com.esp.android.alarmclock;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.Editor;
+import android.preference.PreferenceManager;
+
+/**
+ * 鳴動中・次に鳴らすアラームの状態を保持するクラス
+ * （状態はまとめて変更し、プリファレンスへの保存は非同期で1回だけ行う）
+ */
+public class AlarmStateStore {
+
+    // プリファレンス保存時のキー名（設定画面のキーと重ならないようにする）
+    private final static String KEY_ALARM_ID = "alarm_id";
+    private final static String KEY_ALARM_KEY = "alarm_key";
+    private final static String KEY_SNOOZE_REMAIN_TIMES = "snooze_remain_times";
+    private final static String KEY_ALARM_TIME = "alarm_state_time";
+
+    /**
+     * アラームの状態（変更不可）
+     */
+    public static final class Snapshot {
+        // アラーム設定のID
+        public final long alarmId;
+
+        // アラームキー
+        public final String alarmKey;
+
+        // スヌーズ残り回数
+        public final int snoozeRemainTimes;
+
+        // アラームをセットしたUTC時刻
+        public final long alarmTimeInMillis;
+
+        /**
+         * コンストラクタ
+         */
+        public Snapshot(long alarmId, String alarmKey, int snoozeRemainTimes, long alarmTimeInMillis) {
+            this.alarmId = alarmId;
+            this.alarmKey = alarmKey;
+            this.snoozeRemainTimes = snoozeRemainTimes;
+            this.alarmTimeInMillis = alarmTimeInMillis;
+        }
+
+        /**
+         * スヌーズ残り回数を変更した状態を取得
+         * @param snoozeRemainTimes スヌーズ残り回数
+         * @return 状態
+         */
+        public Snapshot withSnoozeRemainTimes(int snoozeRemainTimes) {
+            return new Snapshot(alarmId, alarmKey, snoozeRemainTimes, alarmTimeInMillis);
+        }
+
+        /**
+         * アラームをセットしたUTC時刻を変更した状態を取得
+         * @param alarmTimeInMillis アラームをセットしたUTC時刻
+         * @return 状態
+         */
+        public Snapshot withAlarmTime(long alarmTimeInMillis) {
+            return new Snapshot(alarmId, alarmKey, snoozeRemainTimes, alarmTimeInMillis);
+        }
+    }
+
+    // 初期状態
+    public static final Snapshot EMPTY = new Snapshot(-1, "", 0, -1);
+
+    // 現在の状態（プリファレンスから読み込むまではnull）
+    private static final AtomicReference<Snapshot> sState = new AtomicReference<Snapshot>();
+
+    /**
+     * 現在の状態を取得
+     * @param context コンテキスト
+     * @return 状態
+     */
+    public static Snapshot get(Context context) {
+        Snapshot state = sState.get();
+        if (state == null) {
+            // 初回のみプリファレンスから読み込む
+            state = load(context);
+            if (!sState.compareAndSet(null, state)) {
+                state = sState.get();
+            }
+        }
+        return state;
+    }
+
+    /**
+     * 状態を変更
+     * @param context コンテキスト
+     * @param state 状態
+     */
+    public static void set(Context context, Snapshot state) {
+        sState.set(state);
+        save(context, state);
+    }
+
+    /**
+     * 現在の状態が指定した状態と同じ場合のみ変更
+     * @param context コンテキスト
+     * @param expect 変更前の状態
+     * @param update 変更後の状態
+     * @return 変更した場合はtrue
+     */
+    public static boolean compareAndSet(Context context, Snapshot expect, Snapshot update) {
+        if (!sState.compareAndSet(expect, update)) {
+            return false;
+        }
+        save(context, update);
+        return true;
+    }
+
+    /**
+     * 状態を初期状態に戻す（プリファレンスは削除済みの場合）
+     */
+    public static void clear() {
+        sState.set(EMPTY);
+    }
+
+    /**
+     * プリファレンスから読み込む
+     * @param context コンテキスト
+     * @return 状態
+     */
+    private static Snapshot load(Context context) {
+        try {
+            SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+            return new Snapshot(sp.getLong(KEY_ALARM_ID, EMPTY.alarmId),
+                                sp.getString(KEY_ALARM_KEY, EMPTY.alarmKey),
+                                sp.getInt(KEY_SNOOZE_REMAIN_TIMES, EMPTY.snoozeRemainTimes),
+                                sp.getLong(KEY_ALARM_TIME, EMPTY.alarmTimeInMillis));
+        } catch (Exception e) {
+            AlarmClockApp.outputError(context, "Load alarm state error!", e, true, true);
+        }
+        return EMPTY;
+    }
+
+    /**
+     * プリファレンスに非同期で保存
+     * @param context コンテキスト
+     * @param state 状態
+     */
+    private static synchronized void save(Context context, Snapshot state) {
+        // 既に新しい状態に変わっている場合は、新しい状態の方を保存する
+        if (sState.get() != state) {
+            return;
+        }
+        try {
+            SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
+            Editor e = sp.edit();
+            e.putLong(KEY_ALARM_ID, state.alarmId);
+            e.putString(KEY_ALARM_KEY, state.alarmKey);
+            e.putInt(KEY_SNOOZE_REMAIN_TIMES, state.snoozeRemainTimes);
+            e.putLong(KEY_ALARM_TIME, state.alarmTimeInMillis);
+            e.apply();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(context, "Save alarm state error!", e, true, true);
+        }
+    }
+}
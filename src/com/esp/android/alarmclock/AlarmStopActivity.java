@@ -43,6 +43,9 @@ public class AlarmStopActivity extends Activity {
     // アラームのID
     private long mAlarmId;
 
+    // 同じ日時に鳴らしたアラームのID
+    private long[] mAlarmIds;
+
     // 定期的に画面を更新する
     private Handler mHandler;
     private final Runnable mRunnable = new Runnable() {
@@ -138,6 +141,7 @@ public class AlarmStopActivity extends Activity {
             // パラメータを取得
             Intent intent = getIntent();
             mAlarmId = intent.getLongExtra("alarm_id", -1);
+            mAlarmIds = AlarmClockWidget.getAlarmIds(intent);
             final String alarmKey = intent.getStringExtra("alarm_key");
 
             // アラームキーチェック
@@ -328,6 +332,9 @@ public class AlarmStopActivity extends Activity {
         try {
             Intent intent = new Intent(AlarmClockWidget.ACTION_STOP_ALARM);
             intent.putExtra("alarm_id", settingId);
+            if (mAlarmIds != null) {
+                intent.putExtra("alarm_ids", mAlarmIds);
+            }
             getApplicationContext().sendBroadcast(intent);
         } catch (Exception e) {
             AlarmClockApp.outputError(getApplicationContext(), "Stop alarm error!", e, true, true);
@@ -229,6 +229,11 @@ public class BookmarkListActivity extends Activity {
             // Adapterオブジェクトにリスト項目を追加
             for (MusicKey musicKey : musicKeys) {
                 MusicItem item = dataManager.selectMusicItem(musicKey.content, musicKey.id);
+
+                // IDが変わっている場合はファイルパスから探す
+                if (item == null && musicKey.path != null) {
+                    item = dataManager.selectMusicItemByPath(musicKey.path);
+                }
                 if (item != null) {
                     mAdapter.add(item);
 
@@ -0,0 +1,154 @@
+package com.esp.android.alarmclock;
+
+import java.util.Calendar;
+
+/**
+ * 暦の計算用クラス
+ * （Calendarを生成せずに整数演算のみで計算する）
+ */
+public class CivilDate {
+
+    // 月初までの日数（平年）
+    private static final int[] DAYS_BEFORE_MONTH = {
+        0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334
+    };
+
+    /**
+     * 1970/1/1からの日数を取得
+     * （日が月の範囲外の場合は前後の月に繰り越した日付とみなす）
+     * @param year 年
+     * @param month 月（1～12）
+     * @param day 日
+     * @return 日数
+     */
+    public static long epochDay(int year, int month, int day) {
+        // 3月始まりの年に変換する
+        long y = (month <= 2) ? year - 1 : year;
+        long era = ((y >= 0) ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * 1970/1/1からの日数から年を取得
+     * @param epochDay 1970/1/1からの日数
+     * @return 年
+     */
+    public static int yearOfEpochDay(long epochDay) {
+        // 3月始まりの年で計算する
+        long z = epochDay + 719468;
+        long era = ((z >= 0) ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long y = yearOfEra + era * 400;
+
+        // 1月と2月は翌年
+        if (dayOfYear >= 306) {
+            y++;
+        }
+        return (int)y;
+    }
+
+    /**
+     * 曜日を取得
+     * @param epochDay 1970/1/1からの日数
+     * @return 曜日（Calendar.SUNDAY～Calendar.SATURDAY）
+     */
+    public static int dayOfWeek(long epochDay) {
+        // 1970/1/1は木曜日
+        int index = (int)((epochDay + 4) % 7);
+        if (index < 0) {
+            index += 7;
+        }
+        return index + Calendar.SUNDAY;
+    }
+
+    /**
+     * 曜日を取得
+     * @param year 年
+     * @param month 月（1～12）
+     * @param day 日
+     * @return 曜日（Calendar.SUNDAY～Calendar.SATURDAY）
+     */
+    public static int dayOfWeek(int year, int month, int day) {
+        return dayOfWeek(epochDay(year, month, day));
+    }
+
+    /**
+     * 第n何曜日の日を取得
+     * @param year 年
+     * @param month 月（1～12）
+     * @param nth 第何週（1～5）
+     * @param dayOfWeek 曜日（Calendar.SUNDAY～Calendar.SATURDAY）
+     * @return 日
+     */
+    public static int nthDayOfWeek(int year, int month, int nth, int dayOfWeek) {
+        int first = dayOfWeek(year, month, 1);
+        int diff = dayOfWeek - first;
+        if (diff < 0) {
+            diff += 7;
+        }
+        return 1 + diff + (nth - 1) * 7;
+    }
+
+    /**
+     * 春分日を取得（1980～2099年まで有効）
+     * @param year 年
+     * @return 3月の日
+     */
+    public static int springEquinoxDay(int year) {
+        return (int)(20.8431+(0.242194*(year-1980))-((year-1980)/4));
+    }
+
+    /**
+     * 秋分日を取得（1980～2099年まで有効）
+     * @param year 年
+     * @return 9月の日
+     */
+    public static int autumnEquinoxDay(int year) {
+        return (int)(23.2488+(0.242194*(year-1980))-((year-1980)/4));
+    }
+
+    /**
+     * 年初からの日数を取得
+     * @param year 年
+     * @param month 月（1～12）
+     * @param day 日
+     * @return 日数（元旦が0）
+     */
+    public static int dayOfYear(int year, int month, int day) {
+        int dayOfYear = DAYS_BEFORE_MONTH[month-1] + day - 1;
+        if (month > 2 && isLeapYear(year)) {
+            dayOfYear++;
+        }
+        return dayOfYear;
+    }
+
+    /**
+     * 月の日数を取得
+     * @param year 年
+     * @param month 月（1～12）
+     * @return 日数
+     */
+    public static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return isLeapYear(year) ? 29 : 28;
+        }
+        if (month == 12) {
+            return 31;
+        }
+        return DAYS_BEFORE_MONTH[month] - DAYS_BEFORE_MONTH[month-1];
+    }
+
+    /**
+     * うるう年チェック
+     * @param year 年
+     * @return うるう年の場合はtrue
+     */
+    public static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+}
@@ -0,0 +1,307 @@
+package com.esp.android.alarmclock;
+
+import java.text.DecimalFormat;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.os.AsyncTask;
+import android.os.Debug;
+
+/**
+ * カーソルの行からオブジェクトを生成する時間を計測するための非同期タスク（テスト用）
+ * （音楽・ブックマーク・アラーム設定の形のカーソルを作成し、DataManagerのRowMapperと
+ *   行毎にカラムの位置を取得する方法で、1行あたりの時間とメモリ確保量をエラー情報に出力する）
+ */
+public class CursorDecodeBenchmarkTask extends AsyncTask<Context, Void, Void> {
+
+    // カーソルの行数
+    private static final int ROW_COUNT = 50000;
+
+    // 計測前に実行する回数
+    private static final int WARMUP_TIMES = 2;
+
+    /**
+     * 行からオブジェクトを生成する方法
+     */
+    private interface Decoder {
+        /**
+         * 全ての行からオブジェクトを生成
+         * @param c カーソル
+         * @return 生成したオブジェクトの数
+         */
+        int decode(Cursor c);
+    }
+
+    /**
+     * バックグラウンドで実行される処理
+     */
+    @Override
+    protected Void doInBackground(Context... arg) {
+        Context context = arg[0];
+        try {
+            // 音楽
+            Cursor c = createMusicItemCursor();
+            try {
+                measure(context, "MusicItem mapper", c, new Decoder() {
+                    @Override
+                    public int decode(Cursor c) {
+                        int count = 0;
+                        DataManager.MusicItemMapper mapper = new DataManager.MusicItemMapper(c);
+                        for (c.moveToFirst(); !c.isAfterLast(); c.moveToNext()) {
+                            if (mapper.map(c) != null) {
+                                count++;
+                            }
+                        }
+                        return count;
+                    }
+                });
+                measure(context, "MusicItem getColumnIndex", c, new Decoder() {
+                    @Override
+                    public int decode(Cursor c) {
+                        int count = 0;
+                        for (c.moveToFirst(); !c.isAfterLast(); c.moveToNext()) {
+                            new MusicItem(
+                                c.getInt(c.getColumnIndex(DataManager.MUSICITEM_COL_CONTENT)),
+                                c.getLong(c.getColumnIndex(DataManager.MUSICITEM_COL_ID)),
+                                c.getInt(c.getColumnIndex(DataManager.MUSICITEM_COL_TYPE)),
+                                c.getString(c.getColumnIndex(DataManager.MUSICITEM_COL_ARTIST)),
+                                c.getString(c.getColumnIndex(DataManager.MUSICITEM_COL_TITLE)),
+                                c.getLong(c.getColumnIndex(DataManager.MUSICITEM_COL_DURATION)),
+                                c.getLong(c.getColumnIndex(DataManager.MUSICITEM_COL_DATE_MODIFIED)),
+                                c.getString(c.getColumnIndex(DataManager.MUSICITEM_COL_PATH))
+                            );
+                            count++;
+                        }
+                        return count;
+                    }
+                });
+            } finally {
+                c.close();
+            }
+
+            // ブックマーク
+            c = createBookmarkCursor();
+            try {
+                measure(context, "MusicKey mapper", c, new Decoder() {
+                    @Override
+                    public int decode(Cursor c) {
+                        int count = 0;
+                        DataManager.MusicKeyMapper mapper = new DataManager.MusicKeyMapper(c);
+                        for (c.moveToFirst(); !c.isAfterLast(); c.moveToNext()) {
+                            if (mapper.map(c) != null) {
+                                count++;
+                            }
+                        }
+                        return count;
+                    }
+                });
+                measure(context, "MusicKey getColumnIndex", c, new Decoder() {
+                    @Override
+                    public int decode(Cursor c) {
+                        int count = 0;
+                        for (c.moveToFirst(); !c.isAfterLast(); c.moveToNext()) {
+                            MusicKey musicKey = new MusicKey();
+                            musicKey.path = c.getString(c.getColumnIndex(DataManager.BOOKMARK_COL_PATH));
+                            musicKey.content = c.getInt(c.getColumnIndex(DataManager.BOOKMARK_COL_CONTENT));
+                            musicKey.id = c.getLong(c.getColumnIndex(DataManager.BOOKMARK_COL_ID));
+                            count++;
+                        }
+                        return count;
+                    }
+                });
+            } finally {
+                c.close();
+            }
+
+            // アラーム設定
+            c = createAlarmSettingCursor();
+            try {
+                measure(context, "AlarmSetting mapper", c, new Decoder() {
+                    @Override
+                    public int decode(Cursor c) {
+                        int count = 0;
+                        DataManager.AlarmSettingMapper mapper = new DataManager.AlarmSettingMapper(c);
+                        for (c.moveToFirst(); !c.isAfterLast(); c.moveToNext()) {
+                            if (mapper.map(c) != null) {
+                                count++;
+                            }
+                        }
+                        return count;
+                    }
+                });
+                measure(context, "AlarmSetting getColumnIndex", c, new Decoder() {
+                    @Override
+                    public int decode(Cursor c) {
+                        int count = 0;
+                        for (c.moveToFirst(); !c.isAfterLast(); c.moveToNext()) {
+                            AlarmSetting setting = new AlarmSetting();
+                            setting.id = c.getLong(c.getColumnIndex(DataManager.ALARM_SETTING_COL_ID));
+                            setting.onOff = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_ON_OFF));
+                            setting.title = c.getString(c.getColumnIndex(DataManager.ALARM_SETTING_COL_TITLE));
+                            setting.repeat = AlarmSetting.Repeat.valueOf(c.getString(c.getColumnIndex(DataManager.ALARM_SETTING_COL_REPEAT)));
+                            setting.setWeekMask(c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_WEEK)));
+                            setting.ymd.year = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_YEAR));
+                            setting.ymd.month = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_MONTH));
+                            setting.ymd.day = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_DAY));
+                            setting.hour = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_HOUR));
+                            setting.minute = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_MINUTE));
+                            setting.musicKey.content = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_MUSIC_CONTENT));
+                            setting.musicKey.id = c.getLong(c.getColumnIndex(DataManager.ALARM_SETTING_COL_MUSIC_ID));
+                            setting.musicKey.path = c.getString(c.getColumnIndex(DataManager.ALARM_SETTING_COL_MUSIC_PATH));
+                            setting.musicVolume = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_MUSIC_VOLUME));
+                            setting.musicLength = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_MUSIC_LENGTH));
+                            setting.voice = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_VOICE));
+                            setting.vibrator = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_VIBRATOR));
+                            setting.snoozeMode = AlarmSetting.SnoozeMode.valueOf(c.getString(c.getColumnIndex(DataManager.ALARM_SETTING_COL_SNOOZE_MODE)));
+                            setting.snoozeLength = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_SNOOZE_LENGTH));
+                            setting.snoozeTimes = c.getInt(c.getColumnIndex(DataManager.ALARM_SETTING_COL_SNOOZE_TIMES));
+                            count++;
+                        }
+                        return count;
+                    }
+                });
+            } finally {
+                c.close();
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(context, "Cursor decode benchmark error!", e, true, true);
+        }
+        return null;
+    }
+
+    /**
+     * 全ての行からオブジェクトを生成する時間とメモリ確保量を計測して出力
+     * @param context コンテキスト
+     * @param name 計測の名前
+     * @param c カーソル
+     * @param decoder 行からオブジェクトを生成する方法
+     */
+    private static void measure(Context context, String name, Cursor c, Decoder decoder) {
+        // 計測前に実行
+        for (int i = 0; i < WARMUP_TIMES; i++) {
+            decoder.decode(c);
+        }
+
+        // 計測
+        Debug.startAllocCounting();
+        long allocStart = Debug.getThreadAllocSize();
+        long start = System.nanoTime();
+        int count = decoder.decode(c);
+        long elapsed = System.nanoTime() - start;
+        long alloc = Debug.getThreadAllocSize() - allocStart;
+        Debug.stopAllocCounting();
+
+        int n = Math.max(1, count);
+        DecimalFormat f = new DecimalFormat("#,##0");
+        String info = "Decode benchmark " + name + ": " +
+                      f.format(elapsed / n) + " ns/row, " +
+                      f.format(alloc / n) + " B/row (" + count + " rows)";
+        AlarmClockApp.outputError(context, info, null, false, true);
+    }
+
+    /**
+     * 音楽テーブルの形のカーソルを作成
+     * @return カーソル
+     */
+    private static Cursor createMusicItemCursor() {
+        MatrixCursor c = new MatrixCursor(new String[] {
+            DataManager.MUSICITEM_COL_CONTENT,
+            DataManager.MUSICITEM_COL_ID,
+            DataManager.MUSICITEM_COL_TYPE,
+            DataManager.MUSICITEM_COL_ARTIST,
+            DataManager.MUSICITEM_COL_TITLE,
+            DataManager.MUSICITEM_COL_DURATION,
+            DataManager.MUSICITEM_COL_DATE_MODIFIED,
+            DataManager.MUSICITEM_COL_PATH,
+        }, ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            c.addRow(new Object[] {
+                Integer.valueOf(MusicItem.CONTENT_EXTERNAL),
+                Long.valueOf(i),
+                Integer.valueOf(MusicItem.TYPE_MUSIC),
+                "artist" + (i % 500),
+                "title" + i,
+                Long.valueOf(180000L + i),
+                Long.valueOf(1700000000L + i),
+                "/sdcard/Music/artist" + (i % 500) + "/title" + i + ".mp3",
+            });
+        }
+        return c;
+    }
+
+    /**
+     * ブックマークテーブルの形のカーソルを作成
+     * @return カーソル
+     */
+    private static Cursor createBookmarkCursor() {
+        MatrixCursor c = new MatrixCursor(new String[] {
+            DataManager.BOOKMARK_COL_PATH,
+            DataManager.BOOKMARK_COL_CONTENT,
+            DataManager.BOOKMARK_COL_ID,
+        }, ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            c.addRow(new Object[] {
+                "/sdcard/Music/artist" + (i % 500) + "/title" + i + ".mp3",
+                Integer.valueOf(MusicItem.CONTENT_EXTERNAL),
+                Long.valueOf(i),
+            });
+        }
+        return c;
+    }
+
+    /**
+     * アラーム設定テーブルの形のカーソルを作成
+     * @return カーソル
+     */
+    private static Cursor createAlarmSettingCursor() {
+        MatrixCursor c = new MatrixCursor(new String[] {
+            DataManager.ALARM_SETTING_COL_ID,
+            DataManager.ALARM_SETTING_COL_ON_OFF,
+            DataManager.ALARM_SETTING_COL_TITLE,
+            DataManager.ALARM_SETTING_COL_REPEAT,
+            DataManager.ALARM_SETTING_COL_WEEK,
+            DataManager.ALARM_SETTING_COL_YEAR,
+            DataManager.ALARM_SETTING_COL_MONTH,
+            DataManager.ALARM_SETTING_COL_DAY,
+            DataManager.ALARM_SETTING_COL_HOUR,
+            DataManager.ALARM_SETTING_COL_MINUTE,
+            DataManager.ALARM_SETTING_COL_MUSIC_CONTENT,
+            DataManager.ALARM_SETTING_COL_MUSIC_ID,
+            DataManager.ALARM_SETTING_COL_MUSIC_PATH,
+            DataManager.ALARM_SETTING_COL_MUSIC_VOLUME,
+            DataManager.ALARM_SETTING_COL_MUSIC_LENGTH,
+            DataManager.ALARM_SETTING_COL_VOICE,
+            DataManager.ALARM_SETTING_COL_VIBRATOR,
+            DataManager.ALARM_SETTING_COL_SNOOZE_MODE,
+            DataManager.ALARM_SETTING_COL_SNOOZE_LENGTH,
+            DataManager.ALARM_SETTING_COL_SNOOZE_TIMES,
+        }, ROW_COUNT);
+        AlarmSetting.Repeat[] repeats = AlarmSetting.Repeat.values();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            c.addRow(new Object[] {
+                Long.valueOf(i + 1),
+                Integer.valueOf(i % 2),
+                "alarm" + i,
+                repeats[i % repeats.length].name(),
+                Integer.valueOf(0x3E),
+                Integer.valueOf(2025),
+                Integer.valueOf(i % 12),
+                Integer.valueOf(i % 28 + 1),
+                Integer.valueOf(i % 24),
+                Integer.valueOf(i % 60),
+                Integer.valueOf(MusicItem.CONTENT_EXTERNAL),
+                Long.valueOf(i),
+                "/sdcard/Music/title" + i + ".mp3",
+                Integer.valueOf(50),
+                Integer.valueOf(60),
+                Integer.valueOf(0),
+                Integer.valueOf(1),
+                AlarmSetting.SnoozeMode.SnoozeOn.name(),
+                Integer.valueOf(5),
+                Integer.valueOf(3),
+            });
+        }
+        return c;
+    }
+}
@@ -1,19 +1,20 @@
 package com.esp.android.alarmclock;
 
 import java.io.File;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import android.content.ContentValues;
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.content.SharedPreferences.Editor;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteStatement;
-import android.preference.PreferenceManager;
 
 /**
  * データ管理クラス
@@ -24,7 +25,7 @@ public class DataManager {
     static final String DATABASE_NAME = "alarmclock.db";
 
     // DBバージョン
-    static final int DATABASE_VERSION = 4;
+    static final int DATABASE_VERSION = 9;
 
     // 音楽テーブル
     public static final String MUSICITEM_TABLE_NAME = "musicitem";
@@ -34,6 +35,24 @@ public class DataManager {
     public static final String MUSICITEM_COL_TITLE = "title";
     public static final String MUSICITEM_COL_DURATION = "duration";
     public static final String MUSICITEM_COL_TYPE = "type";
+    public static final String MUSICITEM_COL_DATE_MODIFIED = "date_modified";
+    public static final String MUSICITEM_COL_PATH = "path";
+    public static final String MUSICITEM_COL_SORT_KEY = "sort_key";
+    public static final String MUSICITEM_INDEX_PATH = "musicitem_path_index";
+    public static final String MUSICITEM_INDEX_TYPE = "musicitem_type_index";
+    public static final String MUSICITEM_INDEX_SORT = "musicitem_sort_index";
+
+    // 音楽テーブルのrowidの列名（ページ単位の取得用）
+    static final String MUSICITEM_COL_ROWID = "_rowid";
+
+    // 音楽テーブルの並び順（並び順のキーのインデックスの順番）
+    static final String MUSICITEM_ORDER_BY = MUSICITEM_COL_SORT_KEY + ", rowid";
+
+    // 並び順のキーのアーティストとタイトルの区切り（どの文字よりも前に並ぶ文字）
+    static final String SORT_KEY_SEPARATOR = "\u0001";
+
+    // 音楽の全文検索テーブル（docidは音楽テーブルのrowid）
+    public static final String MUSICITEM_FTS_TABLE_NAME = "musicitem_fts";
 
     // ブックマークテーブル
     public static final String BOOKMARK_TABLE_NAME = "bookmark";
@@ -41,6 +60,11 @@ public class DataManager {
     public static final String BOOKMARK_COL_CONTENT = "content";
     public static final String BOOKMARK_COL_ID = "id";
 
+    // ブックマークのシャッフル順テーブル（先頭から順に再生し、なくなったら並べ直す）
+    public static final String BOOKMARK_DECK_TABLE_NAME = "bookmark_deck";
+    public static final String BOOKMARK_DECK_COL_POSITION = "_position";
+    public static final String BOOKMARK_DECK_COL_PATH = "path";
+
     // アラーム設定テーブル
     public static final String ALARM_SETTING_TABLE_NAME = "alarm_setting";
     public static final String ALARM_SETTING_COL_ID = "_id";
@@ -69,17 +93,31 @@ public class DataManager {
     public static final String ERROR_INF_COL_ID = "_id";
     public static final String ERROR_INF_COL_TEXT = "text";
 
-    // プリファレンス保存時のキー名
-    private final static String KEY_SNOOZE_REMAIN_TIMES = "snooze_remain_times";
-    private final static String KEY_ALARM_KEY = "alarm_key";
+    // エラー情報テーブルの最大件数
+    static final int ERROR_INF_MAX_ROWS = 500;
+
+    // エラー情報テーブルの削除単位（最大件数をこの件数超えたらまとめて削除する）
+    static final int ERROR_INF_TRIM_ROWS = 100;
 
     // コンテキスト
     private final Context mContext;
 
     // DB用メンバ変数
-    private DatabaseHelper mDbHelper;
     private SQLiteDatabase mDb;
 
+    // アプリケーション全体で共有するDB（プロセスが終了するまでオープンしたままにする）
+    private static DatabaseHelper sDbHelper;
+    private static SQLiteDatabase sDb;
+
+    // 使用中の数
+    private static int sOpenCount = 0;
+
+    // 終了要求フラグ
+    private static boolean bShutdown = false;
+
+    // ロック用オブジェクト
+    private static final Object sDbLock = new Object();
+
     /**
      * SQLiteOpenHelper
      */
@@ -104,10 +142,15 @@ public class DataManager {
                     + MUSICITEM_COL_TYPE + " INTEGER,"
                     + MUSICITEM_COL_ARTIST + " TEXT,"
                     + MUSICITEM_COL_TITLE + " TEXT,"
-                    + MUSICITEM_COL_DURATION + " INTEGER, PRIMARY KEY("
+                    + MUSICITEM_COL_DURATION + " INTEGER,"
+                    + MUSICITEM_COL_DATE_MODIFIED + " INTEGER DEFAULT 0,"
+                    + MUSICITEM_COL_PATH + " TEXT,"
+                    + MUSICITEM_COL_SORT_KEY + " TEXT, PRIMARY KEY("
                     + MUSICITEM_COL_CONTENT + ", "
                     + MUSICITEM_COL_ID + "));"
                 );
+                createMusicItemIndexes(db);
+                createMusicItemFts(db);
 
                 // ブックマークテーブル作成
                 db.execSQL(
@@ -116,6 +159,7 @@ public class DataManager {
                     + BOOKMARK_COL_CONTENT + " INTEGER,"
                     + BOOKMARK_COL_ID + " INTEGER);"
                 );
+                createBookmarkDeck(db);
 
                 // アラーム設定テーブル作成
                 db.execSQL(
@@ -158,16 +202,140 @@ public class DataManager {
          */
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // バージョン4より前のDBは作り直す
+            if (oldVersion < 4) {
+                try {
+                    db.execSQL("DROP TABLE IF EXISTS " + MUSICITEM_FTS_TABLE_NAME);
+                    db.execSQL("DROP TABLE IF EXISTS " + MUSICITEM_TABLE_NAME);
+                    db.execSQL("DROP TABLE IF EXISTS " + BOOKMARK_DECK_TABLE_NAME);
+                    db.execSQL("DROP TABLE IF EXISTS " + BOOKMARK_TABLE_NAME);
+                    db.execSQL("DROP TABLE IF EXISTS " + ALARM_SETTING_TABLE_NAME);
+                    db.execSQL("DROP TABLE IF EXISTS " + ERROR_INF_TABLE_NAME);
+                    clearPreferences(mContext);
+                } catch (Exception e) {
+                    AlarmClockApp.outputError(mContext, "DB upgrade error!", e, true, false);
+                }
+                onCreate(db);
+                return;
+            }
+
             try {
-                db.execSQL("DROP TABLE IF EXISTS " + MUSICITEM_TABLE_NAME);
-                db.execSQL("DROP TABLE IF EXISTS " + BOOKMARK_TABLE_NAME);
-                db.execSQL("DROP TABLE IF EXISTS " + ALARM_SETTING_TABLE_NAME);
-                db.execSQL("DROP TABLE IF EXISTS " + ERROR_INF_TABLE_NAME);
-                clearPreferences(mContext);
+                // バージョン5：音楽テーブルに更新日時と並び順のキーを追加
+                // （インデックスはバージョン6で作成する）
+                if (oldVersion < 5) {
+                    db.execSQL("ALTER TABLE " + MUSICITEM_TABLE_NAME + " ADD COLUMN "
+                        + MUSICITEM_COL_DATE_MODIFIED + " INTEGER DEFAULT 0");
+                    db.execSQL("ALTER TABLE " + MUSICITEM_TABLE_NAME + " ADD COLUMN "
+                        + MUSICITEM_COL_SORT_KEY + " TEXT");
+                    db.execSQL("UPDATE " + MUSICITEM_TABLE_NAME + " SET " + MUSICITEM_COL_SORT_KEY + " = "
+                        + "(CASE " + MUSICITEM_COL_CONTENT
+                        + " WHEN " + MusicItem.CONTENT_ORIGINAL + " THEN '0'"
+                        + " WHEN " + MusicItem.CONTENT_RANDOM + " THEN '2' ELSE '1' END) || "
+                        + "(CASE WHEN " + MUSICITEM_COL_TYPE + " = " + MusicItem.TYPE_MUSIC
+                        + " THEN ifnull(" + MUSICITEM_COL_ARTIST + ", '') || ? ELSE '' END) || "
+                        + "ifnull(" + MUSICITEM_COL_TITLE + ", '')", new Object[] { SORT_KEY_SEPARATOR });
+                }
+
+                // バージョン6：音楽テーブルにファイルパスを追加（次回の検索で全て更新する）
+                if (oldVersion < 6) {
+                    db.execSQL("ALTER TABLE " + MUSICITEM_TABLE_NAME + " ADD COLUMN "
+                        + MUSICITEM_COL_PATH + " TEXT");
+                    createMusicItemIndexes(db);
+                    db.execSQL("UPDATE " + MUSICITEM_TABLE_NAME + " SET "
+                        + MUSICITEM_COL_DATE_MODIFIED + " = 0");
+                }
+
+                // バージョン7：音楽テーブルに種類・アーティスト・並び順のキーのインデックスを追加
+                if (oldVersion < 7) {
+                    createMusicItemIndexes(db);
+                }
+
+                // バージョン8：音楽の全文検索テーブルを追加（登録済みの音楽も追加する）
+                if (oldVersion < 8) {
+                    createMusicItemFts(db);
+                    db.execSQL("INSERT INTO " + MUSICITEM_FTS_TABLE_NAME + "(docid, "
+                        + MUSICITEM_COL_TITLE + ", " + MUSICITEM_COL_ARTIST + ") SELECT rowid, "
+                        + MUSICITEM_COL_TITLE + ", " + MUSICITEM_COL_ARTIST + " FROM " + MUSICITEM_TABLE_NAME);
+                }
+
+                // バージョン9：ブックマークのシャッフル順テーブルを追加（最初の再生時に並べる）
+                if (oldVersion < 9) {
+                    createBookmarkDeck(db);
+                }
             } catch (Exception e) {
                 AlarmClockApp.outputError(mContext, "DB upgrade error!", e, true, false);
             }
-            onCreate(db);
+        }
+
+        /**
+         * 音楽テーブルのインデックス作成
+         */
+        private void createMusicItemIndexes(SQLiteDatabase db) {
+            // ファイルパス（アラームとブックマークの音楽の検索用）
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS " + MUSICITEM_INDEX_PATH + " ON "
+                + MUSICITEM_TABLE_NAME + " (" + MUSICITEM_COL_PATH + ");"
+            );
+
+            // 種類・アーティスト・並び順のキー（アーティスト指定の一覧、件数、アーティスト一覧の検索用）
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS " + MUSICITEM_INDEX_TYPE + " ON "
+                + MUSICITEM_TABLE_NAME + " (" + MUSICITEM_COL_TYPE + ", "
+                + MUSICITEM_COL_ARTIST + ", " + MUSICITEM_COL_SORT_KEY + ");"
+            );
+
+            // 種類・並び順のキー（一覧の検索用）
+            db.execSQL(
+                "CREATE INDEX IF NOT EXISTS " + MUSICITEM_INDEX_SORT + " ON "
+                + MUSICITEM_TABLE_NAME + " (" + MUSICITEM_COL_TYPE + ", "
+                + MUSICITEM_COL_SORT_KEY + ");"
+            );
+        }
+
+        /**
+         * ブックマークのシャッフル順テーブルを作成
+         */
+        private void createBookmarkDeck(SQLiteDatabase db) {
+            db.execSQL(
+                "CREATE TABLE IF NOT EXISTS " + BOOKMARK_DECK_TABLE_NAME + " ("
+                + BOOKMARK_DECK_COL_POSITION + " INTEGER PRIMARY KEY,"
+                + BOOKMARK_DECK_COL_PATH + " TEXT);"
+            );
+        }
+
+        /**
+         * 音楽の全文検索テーブルを作成
+         * （音楽テーブルの追加・更新・削除と同じトランザクションで反映されるようにトリガーで更新する）
+         */
+        private void createMusicItemFts(SQLiteDatabase db) {
+            db.execSQL(
+                "CREATE VIRTUAL TABLE IF NOT EXISTS " + MUSICITEM_FTS_TABLE_NAME + " USING fts4("
+                + MUSICITEM_COL_TITLE + ", " + MUSICITEM_COL_ARTIST + ");"
+            );
+
+            // 追加
+            db.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS " + MUSICITEM_FTS_TABLE_NAME + "_insert AFTER INSERT ON "
+                + MUSICITEM_TABLE_NAME + " BEGIN INSERT INTO " + MUSICITEM_FTS_TABLE_NAME + "(docid, "
+                + MUSICITEM_COL_TITLE + ", " + MUSICITEM_COL_ARTIST + ") VALUES (new.rowid, new."
+                + MUSICITEM_COL_TITLE + ", new." + MUSICITEM_COL_ARTIST + "); END;"
+            );
+
+            // 更新
+            db.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS " + MUSICITEM_FTS_TABLE_NAME + "_update AFTER UPDATE OF "
+                + MUSICITEM_COL_TITLE + ", " + MUSICITEM_COL_ARTIST + " ON " + MUSICITEM_TABLE_NAME
+                + " BEGIN UPDATE " + MUSICITEM_FTS_TABLE_NAME + " SET "
+                + MUSICITEM_COL_TITLE + " = new." + MUSICITEM_COL_TITLE + ", "
+                + MUSICITEM_COL_ARTIST + " = new." + MUSICITEM_COL_ARTIST + " WHERE docid = new.rowid; END;"
+            );
+
+            // 削除
+            db.execSQL(
+                "CREATE TRIGGER IF NOT EXISTS " + MUSICITEM_FTS_TABLE_NAME + "_delete AFTER DELETE ON "
+                + MUSICITEM_TABLE_NAME + " BEGIN DELETE FROM " + MUSICITEM_FTS_TABLE_NAME
+                + " WHERE docid = old.rowid; END;"
+            );
         }
 
         /**
@@ -176,7 +344,9 @@ public class DataManager {
         @Override
         public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
             try {
+                db.execSQL("DROP TABLE IF EXISTS " + MUSICITEM_FTS_TABLE_NAME);
                 db.execSQL("DROP TABLE IF EXISTS " + MUSICITEM_TABLE_NAME);
+                db.execSQL("DROP TABLE IF EXISTS " + BOOKMARK_DECK_TABLE_NAME);
                 db.execSQL("DROP TABLE IF EXISTS " + BOOKMARK_TABLE_NAME);
                 db.execSQL("DROP TABLE IF EXISTS " + ALARM_SETTING_TABLE_NAME);
                 db.execSQL("DROP TABLE IF EXISTS " + ERROR_INF_TABLE_NAME);
@@ -186,6 +356,174 @@ public class DataManager {
             }
             onCreate(db);
         }
+
+        /**
+         * データベースをオープンした時に実行される処理
+         */
+        @Override
+        public void onOpen(SQLiteDatabase db) {
+            super.onOpen(db);
+            try {
+                // WALモードにする（トランザクション外の読み込みは読み込み用の接続で行われるので、
+                // 書き込み中でも待たずに読み込める）
+                if (!db.isReadOnly()) {
+                    db.enableWriteAheadLogging();
+                }
+            } catch (Exception e) {
+                AlarmClockApp.outputError(mContext, "DB WAL mode error!", e, true, false);
+            }
+        }
+    }
+
+    /**
+     * カーソルの行からオブジェクトを生成するクラス
+     * （カラムの位置はカーソル毎に1回だけ取得する）
+     */
+    static abstract class RowMapper<T> {
+        /**
+         * 現在の行からオブジェクトを生成
+         * @param c カーソル
+         * @return オブジェクト
+         */
+        abstract T map(Cursor c);
+    }
+
+    /**
+     * 音楽テーブルの行から音楽を生成するクラス
+     */
+    static class MusicItemMapper extends RowMapper<MusicItem> {
+        private final int contentColumn;
+        private final int idColumn;
+        private final int typeColumn;
+        private final int artistColumn;
+        private final int titleColumn;
+        private final int durationColumn;
+        private final int dateModifiedColumn;
+        private final int pathColumn;
+
+        MusicItemMapper(Cursor c) {
+            contentColumn = c.getColumnIndex(MUSICITEM_COL_CONTENT);
+            idColumn = c.getColumnIndex(MUSICITEM_COL_ID);
+            typeColumn = c.getColumnIndex(MUSICITEM_COL_TYPE);
+            artistColumn = c.getColumnIndex(MUSICITEM_COL_ARTIST);
+            titleColumn = c.getColumnIndex(MUSICITEM_COL_TITLE);
+            durationColumn = c.getColumnIndex(MUSICITEM_COL_DURATION);
+            dateModifiedColumn = c.getColumnIndex(MUSICITEM_COL_DATE_MODIFIED);
+            pathColumn = c.getColumnIndex(MUSICITEM_COL_PATH);
+        }
+
+        @Override
+        MusicItem map(Cursor c) {
+            return new MusicItem(
+                c.getInt(contentColumn),
+                c.getLong(idColumn),
+                c.getInt(typeColumn),
+                c.getString(artistColumn),
+                c.getString(titleColumn),
+                c.getLong(durationColumn),
+                c.getLong(dateModifiedColumn),
+                c.getString(pathColumn)
+            );
+        }
+    }
+
+    /**
+     * ブックマークテーブルの行から音楽のキーを生成するクラス
+     */
+    static class MusicKeyMapper extends RowMapper<MusicKey> {
+        private final int pathColumn;
+        private final int contentColumn;
+        private final int idColumn;
+
+        MusicKeyMapper(Cursor c) {
+            pathColumn = c.getColumnIndex(BOOKMARK_COL_PATH);
+            contentColumn = c.getColumnIndex(BOOKMARK_COL_CONTENT);
+            idColumn = c.getColumnIndex(BOOKMARK_COL_ID);
+        }
+
+        @Override
+        MusicKey map(Cursor c) {
+            MusicKey musicKey = new MusicKey();
+            musicKey.path = c.getString(pathColumn);
+            musicKey.content = c.getInt(contentColumn);
+            musicKey.id = c.getLong(idColumn);
+            return musicKey;
+        }
+    }
+
+    /**
+     * アラーム設定テーブルの行からアラーム設定を生成するクラス
+     */
+    static class AlarmSettingMapper extends RowMapper<AlarmSetting> {
+        private final int idColumn;
+        private final int onOffColumn;
+        private final int titleColumn;
+        private final int repeatColumn;
+        private final int weekColumn;
+        private final int yearColumn;
+        private final int monthColumn;
+        private final int dayColumn;
+        private final int hourColumn;
+        private final int minuteColumn;
+        private final int musicContentColumn;
+        private final int musicIdColumn;
+        private final int musicPathColumn;
+        private final int musicVolumeColumn;
+        private final int musicLengthColumn;
+        private final int voiceColumn;
+        private final int vibratorColumn;
+        private final int snoozeModeColumn;
+        private final int snoozeLengthColumn;
+        private final int snoozeTimesColumn;
+
+        AlarmSettingMapper(Cursor c) {
+            idColumn = c.getColumnIndex(ALARM_SETTING_COL_ID);
+            onOffColumn = c.getColumnIndex(ALARM_SETTING_COL_ON_OFF);
+            titleColumn = c.getColumnIndex(ALARM_SETTING_COL_TITLE);
+            repeatColumn = c.getColumnIndex(ALARM_SETTING_COL_REPEAT);
+            weekColumn = c.getColumnIndex(ALARM_SETTING_COL_WEEK);
+            yearColumn = c.getColumnIndex(ALARM_SETTING_COL_YEAR);
+            monthColumn = c.getColumnIndex(ALARM_SETTING_COL_MONTH);
+            dayColumn = c.getColumnIndex(ALARM_SETTING_COL_DAY);
+            hourColumn = c.getColumnIndex(ALARM_SETTING_COL_HOUR);
+            minuteColumn = c.getColumnIndex(ALARM_SETTING_COL_MINUTE);
+            musicContentColumn = c.getColumnIndex(ALARM_SETTING_COL_MUSIC_CONTENT);
+            musicIdColumn = c.getColumnIndex(ALARM_SETTING_COL_MUSIC_ID);
+            musicPathColumn = c.getColumnIndex(ALARM_SETTING_COL_MUSIC_PATH);
+            musicVolumeColumn = c.getColumnIndex(ALARM_SETTING_COL_MUSIC_VOLUME);
+            musicLengthColumn = c.getColumnIndex(ALARM_SETTING_COL_MUSIC_LENGTH);
+            voiceColumn = c.getColumnIndex(ALARM_SETTING_COL_VOICE);
+            vibratorColumn = c.getColumnIndex(ALARM_SETTING_COL_VIBRATOR);
+            snoozeModeColumn = c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_MODE);
+            snoozeLengthColumn = c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_LENGTH);
+            snoozeTimesColumn = c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_TIMES);
+        }
+
+        @Override
+        AlarmSetting map(Cursor c) {
+            AlarmSetting setting = new AlarmSetting();
+            setting.id = c.getLong(idColumn);
+            setting.onOff = c.getInt(onOffColumn);
+            setting.title = c.getString(titleColumn);
+            setting.repeat = AlarmSetting.Repeat.valueOf(c.getString(repeatColumn));
+            setting.setWeekMask(c.getInt(weekColumn));
+            setting.ymd.year = c.getInt(yearColumn);
+            setting.ymd.month = c.getInt(monthColumn);
+            setting.ymd.day = c.getInt(dayColumn);
+            setting.hour = c.getInt(hourColumn);
+            setting.minute = c.getInt(minuteColumn);
+            setting.musicKey.content = c.getInt(musicContentColumn);
+            setting.musicKey.id = c.getLong(musicIdColumn);
+            setting.musicKey.path = c.getString(musicPathColumn);
+            setting.musicVolume = c.getInt(musicVolumeColumn);
+            setting.musicLength = c.getInt(musicLengthColumn);
+            setting.voice = c.getInt(voiceColumn);
+            setting.vibrator = c.getInt(vibratorColumn);
+            setting.snoozeMode = AlarmSetting.SnoozeMode.valueOf(c.getString(snoozeModeColumn));
+            setting.snoozeLength = c.getInt(snoozeLengthColumn);
+            setting.snoozeTimes = c.getInt(snoozeTimesColumn);
+            return setting;
+        }
     }
 
     /**
@@ -194,17 +532,15 @@ public class DataManager {
      */
     public DataManager(Context context){
         mContext = context;
-        mDbHelper = new DatabaseHelper(context);
     }
 
     /**
-     * 音楽テーブル追加
+     * 音楽テーブル同期
+     * （追加・更新・削除されたアイテムだけを反映する）
      * @param items アイテムのリスト
-     * @return 追加した場合はtrue
+     * @return 同期した場合はtrue
      */
-    public boolean insertMusicItems(List<MusicItem> items) {
-        long id = -1;
-
+    public boolean syncMusicItems(List<MusicItem> items) {
         // DBオープン
         if (!open(true)) {
             return false;
@@ -214,36 +550,91 @@ public class DataManager {
             // トランザクション開始
             mDb.beginTransaction();
 
+            // 登録済みのアイテムの更新日時を取得
+            Map<Long, Long> dates = new HashMap<Long, Long>();
+            Cursor c = mDb.query(MUSICITEM_TABLE_NAME, new String[]{
+                    MUSICITEM_COL_CONTENT, MUSICITEM_COL_ID, MUSICITEM_COL_DATE_MODIFIED},
+                    null, null, null, null, null);
+            if (c != null) {
+                if(c.moveToFirst()){
+                    do {
+                        dates.put(Long.valueOf(musicItemKey(c.getInt(0), c.getLong(1))), Long.valueOf(c.getLong(2)));
+                    } while(c.moveToNext());
+                }
+                c.close();
+            }
+
             // SQL作成
-            SQLiteStatement stmt = mDb.compileStatement("insert into " + MUSICITEM_TABLE_NAME + "(" +
+            SQLiteStatement insertStmt = mDb.compileStatement("insert into " + MUSICITEM_TABLE_NAME + "(" +
                                                          MUSICITEM_COL_CONTENT + "," +
                                                          MUSICITEM_COL_ID + "," +
                                                          MUSICITEM_COL_TYPE + "," +
                                                          MUSICITEM_COL_ARTIST + "," +
                                                          MUSICITEM_COL_TITLE + "," +
-                                                         MUSICITEM_COL_DURATION + ") values (?,?,?,?,?,?);"); 
-
-            // データ追加
-            Iterator<MusicItem> itr = items.iterator(); 
-            while(itr.hasNext()){ 
-                MusicItem item = (MusicItem)itr.next();
-                stmt.bindLong(1, item.content);
-                stmt.bindLong(2, item.id);
-                stmt.bindLong(3, item.type);
-                stmt.bindString(4, item.artist);
-                stmt.bindString(5, item.title);
-                stmt.bindLong(6, item.duration);
-                id = stmt.executeInsert();
-                if (id < 0) {
-                    AlarmClockApp.outputError(mContext, "Insert music items error!", null, true, false);
-                    break;
+                                                         MUSICITEM_COL_DURATION + "," +
+                                                         MUSICITEM_COL_DATE_MODIFIED + "," +
+                                                         MUSICITEM_COL_PATH + "," +
+                                                         MUSICITEM_COL_SORT_KEY + ") values (?,?,?,?,?,?,?,?,?);");
+            SQLiteStatement updateStmt = mDb.compileStatement("update " + MUSICITEM_TABLE_NAME + " set " +
+                                                         MUSICITEM_COL_TYPE + "=?," +
+                                                         MUSICITEM_COL_ARTIST + "=?," +
+                                                         MUSICITEM_COL_TITLE + "=?," +
+                                                         MUSICITEM_COL_DURATION + "=?," +
+                                                         MUSICITEM_COL_DATE_MODIFIED + "=?," +
+                                                         MUSICITEM_COL_PATH + "=?," +
+                                                         MUSICITEM_COL_SORT_KEY + "=? where " +
+                                                         MUSICITEM_COL_CONTENT + "=? and " +
+                                                         MUSICITEM_COL_ID + "=?;");
+            SQLiteStatement deleteStmt = mDb.compileStatement("delete from " + MUSICITEM_TABLE_NAME + " where " +
+                                                         MUSICITEM_COL_CONTENT + "=? and " +
+                                                         MUSICITEM_COL_ID + "=?;");
+
+            // 追加・更新
+            for (MusicItem item : items) {
+                Long date = dates.remove(Long.valueOf(musicItemKey(item.content, item.id)));
+                if (date == null) {
+                    insertStmt.bindLong(1, item.content);
+                    insertStmt.bindLong(2, item.id);
+                    insertStmt.bindLong(3, item.type);
+                    insertStmt.bindString(4, item.artist);
+                    insertStmt.bindString(5, item.title);
+                    insertStmt.bindLong(6, item.duration);
+                    insertStmt.bindLong(7, item.dateModified);
+                    bindStringOrNull(insertStmt, 8, item.path);
+                    insertStmt.bindString(9, musicItemSortKey(item));
+                    if (insertStmt.executeInsert() < 0) {
+                        AlarmClockApp.outputError(mContext, "Sync music items error!", null, true, false);
+                        return false;
+                    }
+
+                // 更新日時が変わったアイテムのみ更新（MediaStore以外のアイテムは毎回更新）
+                } else if (date.longValue() != item.dateModified ||
+                        item.content == MusicItem.CONTENT_ORIGINAL || item.content == MusicItem.CONTENT_RANDOM) {
+                    updateStmt.bindLong(1, item.type);
+                    updateStmt.bindString(2, item.artist);
+                    updateStmt.bindString(3, item.title);
+                    updateStmt.bindLong(4, item.duration);
+                    updateStmt.bindLong(5, item.dateModified);
+                    bindStringOrNull(updateStmt, 6, item.path);
+                    updateStmt.bindString(7, musicItemSortKey(item));
+                    updateStmt.bindLong(8, item.content);
+                    updateStmt.bindLong(9, item.id);
+                    updateStmt.execute();
                 }
             }
 
+            // 見つからなかったアイテムを削除
+            for (Long key : dates.keySet()) {
+                deleteStmt.bindLong(1, key.longValue() & 0x3);
+                deleteStmt.bindLong(2, key.longValue() >> 2);
+                deleteStmt.execute();
+            }
+
             // コミット
             mDb.setTransactionSuccessful();
         } catch (Exception e) {
-            AlarmClockApp.outputError(mContext, "Insert music items error!", e, true, false);
+            AlarmClockApp.outputError(mContext, "Sync music items error!", e, true, false);
+            return false;
         } finally {
             // トランザクション終了
             mDb.endTransaction();
@@ -251,12 +642,54 @@ public class DataManager {
             // DBクローズ
             close();
         }
+        return true;
+    }
 
-        if (id < 0) {
-            return false;
+    /**
+     * 文字列をバインド（nullの場合はNULLをバインド）
+     * @param stmt SQL
+     * @param index 位置
+     * @param value 値
+     */
+    private static void bindStringOrNull(SQLiteStatement stmt, int index, String value) {
+        if (value == null) {
+            stmt.bindNull(index);
+        } else {
+            stmt.bindString(index, value);
         }
+    }
 
-        return true;
+    /**
+     * 音楽テーブルのキーを1つの数値にする
+     * @param content コンテンツ（0～3）
+     * @param id ID
+     * @return キー
+     */
+    private static long musicItemKey(int content, long id) {
+        return (id << 2) | content;
+    }
+
+    /**
+     * 音楽テーブルの並び順のキーを作成（MusicItem.compareToと同じ順番になるようにする）
+     * @param item アイテム
+     * @return 並び順のキー
+     */
+    static String musicItemSortKey(MusicItem item) {
+        // オリジナル、端末内部と外部メディア、ランダムの順
+        StringBuilder key = new StringBuilder();
+        if (item.content == MusicItem.CONTENT_ORIGINAL) {
+            key.append('0');
+        } else if (item.content == MusicItem.CONTENT_RANDOM) {
+            key.append('2');
+        } else {
+            key.append('1');
+        }
+
+        // 音楽の場合はアーティスト順（nullは空文字列として並べる）
+        if (item.type == MusicItem.TYPE_MUSIC) {
+            key.append(item.artist != null ? item.artist : "").append(SORT_KEY_SEPARATOR);
+        }
+        return key.append(item.title != null ? item.title : "").toString();
     }
 
     /**
@@ -279,25 +712,19 @@ public class DataManager {
             if (artist == null || artist.length() == 0) {
                 c = mDb.query(MUSICITEM_TABLE_NAME, null,
                         MUSICITEM_COL_TYPE + " = ?",
-                        new String[]{String.valueOf(type)}, null, null, null);
+                        new String[]{String.valueOf(type)}, null, null, MUSICITEM_ORDER_BY);
             } else {
                 c = mDb.query(MUSICITEM_TABLE_NAME, null,
                         MUSICITEM_COL_TYPE + " = ? and " + MUSICITEM_COL_ARTIST + " = ?",
-                        new String[]{String.valueOf(type), artist}, null, null, null);
+                        new String[]{String.valueOf(type), artist}, null, null, MUSICITEM_ORDER_BY);
             }
 
             // 値の取得
             if (c != null) {
+                MusicItemMapper mapper = new MusicItemMapper(c);
                 if(c.moveToFirst()){
                     do {
-                        MusicItem item = new MusicItem(
-                            c.getInt(c.getColumnIndex(MUSICITEM_COL_CONTENT)),
-                            c.getLong(c.getColumnIndex(MUSICITEM_COL_ID)),
-                            c.getInt(c.getColumnIndex(MUSICITEM_COL_TYPE)),
-                            c.getString(c.getColumnIndex(MUSICITEM_COL_ARTIST)),
-                            c.getString(c.getColumnIndex(MUSICITEM_COL_TITLE)),
-                            c.getLong(c.getColumnIndex(MUSICITEM_COL_DURATION))
-                        );
+                        MusicItem item = mapper.map(c);
                         items.add(item);
                     } while(c.moveToNext());
                 }
@@ -313,6 +740,162 @@ public class DataManager {
         return items;
     }
 
+    /**
+     * 音楽テーブルの1ページ
+     */
+    public static class MusicItemPage {
+        // アイテムのリスト
+        public final List<MusicItem> items;
+
+        // 最後のアイテムの並び順のキー（アイテムがない場合はnull）
+        public final String lastSortKey;
+
+        // 最後のアイテムのrowid
+        public final long lastRowId;
+
+        /**
+         * コンストラクタ
+         */
+        MusicItemPage(List<MusicItem> items, String lastSortKey, long lastRowId) {
+            this.items = items;
+            this.lastSortKey = lastSortKey;
+            this.lastRowId = lastRowId;
+        }
+    }
+
+    /**
+     * 音楽テーブル取得（指定したアイテムの次から1ページ）
+     * （並び順のキーのインデックスを辿るので、OFFSETのように前のページを並べ直さない）
+     * @param type メディアの種類
+     * @param artist アーティスト
+     * @param afterSortKey 前のアイテムの並び順のキー（先頭から取得する場合はnull）
+     * @param afterRowId 前のアイテムのrowid
+     * @param skip 読み飛ばす件数
+     * @param limit 件数
+     * @return 1ページ
+     */
+    public MusicItemPage selectMusicItemPage(int type, String artist, String afterSortKey, long afterRowId, int skip, int limit) {
+        MusicItemPage page = null;
+
+        // DBオープン
+        if (!open(false)) {
+            return null;
+        }
+
+        try {
+            // 条件作成
+            boolean bArtist = artist != null && artist.length() > 0;
+            List<String> args = new ArrayList<String>();
+            args.add(String.valueOf(type));
+            if (bArtist) {
+                args.add(artist);
+            }
+            if (afterSortKey != null) {
+                args.add(afterSortKey);
+                args.add(afterSortKey);
+                args.add(String.valueOf(afterRowId));
+            }
+
+            // データ取得
+            Cursor c = mDb.rawQuery(musicItemPageSql(bArtist, afterSortKey != null, skip, limit),
+                    args.toArray(new String[args.size()]));
+
+            // 値の取得
+            List<MusicItem> items = new ArrayList<MusicItem>(limit);
+            String lastSortKey = null;
+            long lastRowId = -1;
+            if (c != null) {
+                MusicItemMapper mapper = new MusicItemMapper(c);
+                int sortKeyColumn = c.getColumnIndex(MUSICITEM_COL_SORT_KEY);
+                int rowIdColumn = c.getColumnIndex(MUSICITEM_COL_ROWID);
+                if(c.moveToFirst()){
+                    do {
+                        MusicItem item = mapper.map(c);
+                        items.add(item);
+                    } while(c.moveToNext());
+                    c.moveToLast();
+                    lastSortKey = c.getString(sortKeyColumn);
+                    lastRowId = c.getLong(rowIdColumn);
+                }
+                c.close();
+            }
+            page = new MusicItemPage(items, lastSortKey, lastRowId);
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Select music items error!", e, true, false);
+        } finally {
+            // DBクローズ
+            close();
+        }
+        return page;
+    }
+
+    /**
+     * 音楽テーブルの1ページを取得するSQL作成
+     * （引数はメディアの種類、アーティスト、前のアイテムの並び順のキー2回とrowidの順）
+     * @param bArtist アーティストで絞り込む場合はtrue
+     * @param bAfter 前のアイテムの次から取得する場合はtrue
+     * @param skip 読み飛ばす件数
+     * @param limit 件数
+     * @return SQL
+     */
+    static String musicItemPageSql(boolean bArtist, boolean bAfter, int skip, int limit) {
+        StringBuilder sql = new StringBuilder("select rowid as " + MUSICITEM_COL_ROWID + ", * from " +
+                MUSICITEM_TABLE_NAME + " where " + MUSICITEM_COL_TYPE + " = ?");
+        if (bArtist) {
+            sql.append(" and " + MUSICITEM_COL_ARTIST + " = ?");
+        }
+        if (bAfter) {
+            sql.append(" and " + MUSICITEM_COL_SORT_KEY + " >= ? and (" +
+                       MUSICITEM_COL_SORT_KEY + " > ? or rowid > ?)");
+        }
+        sql.append(" order by " + MUSICITEM_ORDER_BY +
+                   " limit " + String.valueOf(skip) + ", " + String.valueOf(limit));
+        return sql.toString();
+    }
+
+    /**
+     * 音楽テーブル件数取得
+     * @param type メディアの種類
+     * @param artist アーティスト
+     * @return 件数
+     */
+    public long getMusicItemsCount(int type, String artist) {
+        long count = 0;
+
+        // DBオープン
+        if (!open(false)) {
+            return 0;
+        }
+
+        try {
+            // 件数取得
+            Cursor c;
+            if (artist == null || artist.length() == 0) {
+                c = mDb.rawQuery("select count(*) from " + MUSICITEM_TABLE_NAME +
+                        " where " + MUSICITEM_COL_TYPE + " = ?",
+                        new String[]{String.valueOf(type)});
+            } else {
+                c = mDb.rawQuery("select count(*) from " + MUSICITEM_TABLE_NAME +
+                        " where " + MUSICITEM_COL_TYPE + " = ? and " + MUSICITEM_COL_ARTIST + " = ?",
+                        new String[]{String.valueOf(type), artist});
+            }
+
+            // 件数の取得
+            if (c != null) {
+                if(c.moveToLast()){
+                    count = c.getLong(0);
+                }
+                c.close();
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Count music items error!", e, true, false);
+        } finally {
+            // DBクローズ
+            close();
+        }
+        return count;
+    }
+
     /**
      * 音楽テーブル取得（1件）
      * @param content コンテンツ
@@ -335,15 +918,9 @@ public class DataManager {
 
             // 値の取得
             if (c != null) {
+                MusicItemMapper mapper = new MusicItemMapper(c);
                 if(c.moveToFirst()){
-                    item = new MusicItem(
-                        c.getInt(c.getColumnIndex(MUSICITEM_COL_CONTENT)),
-                        c.getLong(c.getColumnIndex(MUSICITEM_COL_ID)),
-                        c.getInt(c.getColumnIndex(MUSICITEM_COL_TYPE)),
-                        c.getString(c.getColumnIndex(MUSICITEM_COL_ARTIST)),
-                        c.getString(c.getColumnIndex(MUSICITEM_COL_TITLE)),
-                        c.getLong(c.getColumnIndex(MUSICITEM_COL_DURATION))
-                    );
+                    item = mapper.map(c);
                 }
                 c.close();
             }
@@ -358,41 +935,185 @@ public class DataManager {
     }
 
     /**
-     * 音楽テーブル削除
-     * @return 削除した場合はtrue
+     * 音楽の全文検索（前方一致）
+     * @param type メディアの種類
+     * @param artist アーティスト（指定しない場合はnull）
+     * @param query 検索文字列（空白で区切った全ての語を含むものを検索）
+     * @param limit 最大件数
+     * @return アイテムのリスト（タイトル、アーティストが検索文字列で始まるものから順）
      */
-    public boolean deleteMusicItems() {
-        int num = 0;
+    public List<MusicItem> searchMusicItems(int type, String artist, String query, int limit) {
+        List<MusicItem> items = new ArrayList<MusicItem>();
+
+        // 検索する語を取得
+        List<String> terms = toSearchTerms(query);
+        if (terms.size() == 0) {
+            return items;
+        }
+
+        // 全文検索の式（全ての語の前方一致）
+        StringBuilder match = new StringBuilder();
+        for (String term : terms) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(term).append("*\"");
+        }
+
+        // 並び順に使う最初の語（LIKEのワイルドカードはエスケープする）
+        String first = escapeLike(terms.get(0)) + "%";
 
         // DBオープン
-        if (!open(true)) {
-            return false;
+        if (!open(false)) {
+            return null;
         }
-        
+
         try {
-            // トランザクション開始
-            mDb.beginTransaction();
-            
-            // データ削除
-            num = mDb.delete(MUSICITEM_TABLE_NAME, null, null);
-            
-            // コミット
-            mDb.setTransactionSuccessful();
+            // 条件作成
+            String where = "f." + MUSICITEM_FTS_TABLE_NAME + " match ? and m." + MUSICITEM_COL_TYPE + " = ?" +
+                           " and m." + MUSICITEM_COL_CONTENT + " <> ?";
+            List<String> args = new ArrayList<String>();
+            args.add(match.toString());
+            args.add(String.valueOf(type));
+            args.add(String.valueOf(MusicItem.CONTENT_RANDOM));
+            if (artist != null && artist.length() > 0) {
+                where += " and m." + MUSICITEM_COL_ARTIST + " = ?";
+                args.add(artist);
+            }
+            args.add(first);
+            args.add(first);
+            args.add(String.valueOf(limit));
+
+            // データ取得（ランダムは除く）
+            Cursor c = mDb.rawQuery("select m.* from " + MUSICITEM_TABLE_NAME + " m join " +
+                    MUSICITEM_FTS_TABLE_NAME + " f on f.docid = m.rowid where " + where +
+                    " order by case when m." + MUSICITEM_COL_TITLE + " like ? escape '\\' then 0" +
+                    " when m." + MUSICITEM_COL_ARTIST + " like ? escape '\\' then 1 else 2 end, m." +
+                    MUSICITEM_COL_SORT_KEY + " limit ?",
+                    args.toArray(new String[args.size()]));
+
+            // 値の取得
+            if (c != null) {
+                MusicItemMapper mapper = new MusicItemMapper(c);
+                if(c.moveToFirst()){
+                    do {
+                        MusicItem item = mapper.map(c);
+                        items.add(item);
+                    } while(c.moveToNext());
+                }
+                c.close();
+            }
         } catch (Exception e) {
-            AlarmClockApp.outputError(mContext, "Delete music items error!", e, true, false);
-            return false;
+            AlarmClockApp.outputError(mContext, "Search music items error!", e, true, false);
+            items = null;
         } finally {
-            // トランザクション終了
-            mDb.endTransaction();
+            // DBクローズ
+            close();
+        }
+        return items;
+    }
 
+    /**
+     * LIKEのワイルドカードをエスケープ（エスケープ文字は\）
+     * @param value 文字列
+     * @return エスケープした文字列
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 検索文字列を語に分ける
+     * @param query 検索文字列
+     * @return 語のリスト
+     */
+    private static List<String> toSearchTerms(String query) {
+        List<String> terms = new ArrayList<String>();
+        if (query == null) {
+            return terms;
+        }
+        for (String term : query.trim().split("\\s+")) {
+            // 全文検索の式として扱われる文字は除く
+            term = term.replaceAll("[\"*:^()]", "");
+            if (term.length() > 0) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * 音楽テーブル取得（ファイルパスから1件）
+     * @param path ファイルパス
+     * @return アイテム
+     */
+    public MusicItem selectMusicItemByPath(String path) {
+        MusicItem item = null;
+
+        // DBオープン
+        if (!open(false)) {
+            return null;
+        }
+
+        try {
+            // データ取得
+            Cursor c = mDb.query(MUSICITEM_TABLE_NAME, null,
+                    MUSICITEM_COL_PATH + " = ?",
+                    new String[]{path}, null, null, null, "1");
+
+            // 値の取得
+            if (c != null) {
+                MusicItemMapper mapper = new MusicItemMapper(c);
+                if(c.moveToFirst()){
+                    item = mapper.map(c);
+                }
+                c.close();
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Select music item error!", e, true, false);
+            item = null;
+        } finally {
             // DBクローズ
             close();
         }
+        return item;
+    }
 
-        if (num > 0) {
-            return true;
+    /**
+     * 音楽テーブルのファイルパス取得
+     * @param content コンテンツ
+     * @param id ID
+     * @return ファイルパス（登録されていない場合はnull）
+     */
+    public String selectMusicItemPath(int content, long id) {
+        String path = null;
+
+        // DBオープン
+        if (!open(false)) {
+            return null;
         }
-        return false;
+
+        try {
+            // データ取得
+            Cursor c = mDb.query(MUSICITEM_TABLE_NAME, new String[]{MUSICITEM_COL_PATH},
+                    MUSICITEM_COL_CONTENT + " = ? and " + MUSICITEM_COL_ID + " = ?",
+                    new String[]{String.valueOf(content), String.valueOf(id)}, null, null, null);
+
+            // 値の取得
+            if (c != null) {
+                if(c.moveToFirst()){
+                    path = c.getString(0);
+                }
+                c.close();
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Select music item path error!", e, true, false);
+            path = null;
+        } finally {
+            // DBクローズ
+            close();
+        }
+        return path;
     }
 
     /**
@@ -416,9 +1137,10 @@ public class DataManager {
 
             // 値の取得
             if (c != null) {
+                int artistColumn = c.getColumnIndex(MUSICITEM_COL_ARTIST);
                 if(c.moveToFirst()){
                     do {
-                        String artist = c.getString(c.getColumnIndex(MUSICITEM_COL_ARTIST));
+                        String artist = c.getString(artistColumn);
                         artists.add(artist);
                     } while(c.moveToNext());
                 }
@@ -442,6 +1164,12 @@ public class DataManager {
     public boolean insertBookmark(MusicKey musicKey) {
         long id = -1;
 
+        // ファイルパスがキーのため、ファイルパスのないブックマークは追加しない
+        if (musicKey.path == null) {
+            AlarmClockApp.outputError(mContext, "Insert bookmark error! (no path)", null, true, false);
+            return false;
+        }
+
         // DBオープン
         if (!open(true)) {
             return false;
@@ -504,12 +1232,10 @@ public class DataManager {
 
             // 値の取得
             if (c != null) {
+                MusicKeyMapper mapper = new MusicKeyMapper(c);
                 if(c.moveToFirst()){
                     do {
-                        MusicKey musicKey = new MusicKey();
-                        musicKey.path = c.getString(c.getColumnIndex(BOOKMARK_COL_PATH));
-                        musicKey.content = c.getInt(c.getColumnIndex(BOOKMARK_COL_CONTENT));
-                        musicKey.id = c.getLong(c.getColumnIndex(BOOKMARK_COL_ID));
+                        MusicKey musicKey = mapper.map(c);
                         musicKeys.add(musicKey);
                     } while(c.moveToNext());
                 }
@@ -546,11 +1272,9 @@ public class DataManager {
 
             // 値の取得
             if (c != null) {
+                MusicKeyMapper mapper = new MusicKeyMapper(c);
                 if(c.moveToFirst()){
-                    musicKey = new MusicKey();
-                    musicKey.path = c.getString(c.getColumnIndex(BOOKMARK_COL_PATH));
-                    musicKey.content = c.getInt(c.getColumnIndex(BOOKMARK_COL_CONTENT));
-                    musicKey.id = c.getLong(c.getColumnIndex(BOOKMARK_COL_ID));
+                    musicKey = mapper.map(c);
                 }
                 c.close();
             }
@@ -584,11 +1308,9 @@ public class DataManager {
 
             // 値の取得
             if (c != null) {
+                MusicKeyMapper mapper = new MusicKeyMapper(c);
                 if(c.moveToFirst()){
-                    musicKey = new MusicKey();
-                    musicKey.path = c.getString(c.getColumnIndex(BOOKMARK_COL_PATH));
-                    musicKey.content = c.getInt(c.getColumnIndex(BOOKMARK_COL_CONTENT));
-                    musicKey.id = c.getLong(c.getColumnIndex(BOOKMARK_COL_ID));
+                    musicKey = mapper.map(c);
                 }
                 c.close();
             }
@@ -602,6 +1324,75 @@ public class DataManager {
         return musicKey;
     }
 
+    /**
+     * ブックマークからシャッフル順に次の音楽を取得
+     * （シャッフル順テーブルの先頭から取り出し、全て取り出したら並べ直す。
+     *   削除されたブックマークや見つからない音楽は飛ばす）
+     * @return 音楽のアイテム（再生できるブックマークがない場合はnull）
+     */
+    public MusicItem drawBookmarkMusicItem() {
+        MusicItem item = null;
+
+        // DBオープン
+        if (!open(true)) {
+            return null;
+        }
+
+        try {
+            // トランザクション開始
+            mDb.beginTransaction();
+
+            // 先頭のブックマークの音楽を取得（1回目で見つからなければ並べ直して再取得）
+            String sql = "select d." + BOOKMARK_DECK_COL_POSITION + ", m.*" +
+                         " from " + BOOKMARK_DECK_TABLE_NAME + " d" +
+                         " join " + BOOKMARK_TABLE_NAME + " b" +
+                         " on b." + BOOKMARK_COL_PATH + " = d." + BOOKMARK_DECK_COL_PATH +
+                         " join " + MUSICITEM_TABLE_NAME + " m" +
+                         " on m." + MUSICITEM_COL_CONTENT + " = b." + BOOKMARK_COL_CONTENT +
+                         " and m." + MUSICITEM_COL_ID + " = b." + BOOKMARK_COL_ID +
+                         " order by d." + BOOKMARK_DECK_COL_POSITION + " limit 1;";
+            long position = -1;
+            for (int i = 0; i < 2 && item == null; i++) {
+                if (i > 0) {
+                    // 全て取り出した場合は並べ直す
+                    mDb.delete(BOOKMARK_DECK_TABLE_NAME, null, null);
+                    mDb.execSQL("insert into " + BOOKMARK_DECK_TABLE_NAME + "(" + BOOKMARK_DECK_COL_PATH + ")" +
+                                " select " + BOOKMARK_COL_PATH + " from " + BOOKMARK_TABLE_NAME +
+                                " order by random();");
+                }
+
+                Cursor c = mDb.rawQuery(sql, null);
+                if (c != null) {
+                    MusicItemMapper mapper = new MusicItemMapper(c);
+                    if(c.moveToFirst()){
+                        position = c.getLong(c.getColumnIndex(BOOKMARK_DECK_COL_POSITION));
+                        item = mapper.map(c);
+                    }
+                    c.close();
+                }
+            }
+
+            // 取り出した分（飛ばした分を含む）を削除
+            if (item != null) {
+                mDb.delete(BOOKMARK_DECK_TABLE_NAME,
+                    BOOKMARK_DECK_COL_POSITION + " <= ?", new String[]{Long.toString(position)});
+            }
+
+            // コミット
+            mDb.setTransactionSuccessful();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Draw bookmark error!", e, true, false);
+            item = null;
+        } finally {
+            // トランザクション終了
+            mDb.endTransaction();
+
+            // DBクローズ
+            close();
+        }
+        return item;
+    }
+
     /**
      * ブックマークテーブル更新
      * @param path パス
@@ -649,6 +1440,65 @@ public class DataManager {
         return false;
     }
 
+    /**
+     * ブックマークテーブル更新（複数件）
+     * @param musicKeys 音楽のキーのリスト（パスが一致する行を更新）
+     * @return 全て更新できた場合はtrue
+     */
+    public boolean updateBookmarks(List<MusicKey> musicKeys) {
+        if (musicKeys.isEmpty()) {
+            return true;
+        }
+        boolean result = true;
+
+        // DBオープン
+        if (!open(true)) {
+            return false;
+        }
+
+        try {
+            // トランザクション開始
+            mDb.beginTransaction();
+
+            // SQL作成（全件で使い回す）
+            SQLiteStatement stmt = mDb.compileStatement("update " + BOOKMARK_TABLE_NAME + " set " +
+                                                         BOOKMARK_COL_CONTENT + " = ?," +
+                                                         BOOKMARK_COL_ID + " = ?" +
+                                                         " where " + BOOKMARK_COL_PATH + " = ?;");
+            try {
+                // データ更新
+                for (MusicKey musicKey : musicKeys) {
+                    // ファイルパスのないブックマークは登録されていない
+                    if (musicKey.path == null) {
+                        result = false;
+                        continue;
+                    }
+                    stmt.bindLong(1, musicKey.content);
+                    stmt.bindLong(2, musicKey.id);
+                    stmt.bindString(3, musicKey.path);
+                    if (stmt.executeUpdateDelete() <= 0) {
+                        result = false;
+                    }
+                }
+            } finally {
+                stmt.close();
+            }
+
+            // コミット
+            mDb.setTransactionSuccessful();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Update bookmarks error!", e, true, false);
+            return false;
+        } finally {
+            // トランザクション終了
+            mDb.endTransaction();
+
+            // DBクローズ
+            close();
+        }
+        return result;
+    }
+
     /**
      * ブックマークテーブル削除
      * @param path パス
@@ -767,7 +1617,7 @@ public class DataManager {
             stmt.bindLong(2, setting.onOff);
             stmt.bindString(3, setting.title);
             stmt.bindString(4, setting.repeat.toString());
-            stmt.bindLong(5, AlarmSetting.weekSetToInt(setting.week));
+            stmt.bindLong(5, setting.getWeekMask());
             stmt.bindLong(6, setting.ymd.year);
             stmt.bindLong(7, setting.ymd.month);
             stmt.bindLong(8, setting.ymd.day);
@@ -775,7 +1625,7 @@ public class DataManager {
             stmt.bindLong(10, setting.minute);
             stmt.bindLong(11, setting.musicKey.content);
             stmt.bindLong(12, setting.musicKey.id);
-            stmt.bindString(13, setting.musicKey.path);
+            bindStringOrNull(stmt, 13, setting.musicKey.path);
             stmt.bindLong(14, setting.musicVolume);
             stmt.bindLong(15, setting.musicLength);
             stmt.bindLong(16, setting.voice);
@@ -804,6 +1654,10 @@ public class DataManager {
             return false;
         }
 
+        // キャッシュとインデックスに反映
+        AlarmSettingCache.invalidate(setting.id);
+        AlarmScheduleIndex.put(setting);
+
         return true;
     }
 
@@ -825,29 +1679,11 @@ public class DataManager {
 
             // 値の取得
             if (c != null) {
+                AlarmSettingMapper mapper = new AlarmSettingMapper(c);
                 if(c.moveToFirst()){
                     do {
-                        AlarmSetting setting = new AlarmSetting();
-                        setting.id = c.getLong(c.getColumnIndex(ALARM_SETTING_COL_ID));
-                        setting.onOff = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_ON_OFF));
-                        setting.title = c.getString(c.getColumnIndex(ALARM_SETTING_COL_TITLE));
-                        setting.repeat = AlarmSetting.Repeat.valueOf(c.getString(c.getColumnIndex(ALARM_SETTING_COL_REPEAT)));
-                        setting.week = AlarmSetting.intToWeekSet(c.getInt(c.getColumnIndex(ALARM_SETTING_COL_WEEK)));
-                        setting.ymd.year = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_YEAR));
-                        setting.ymd.month = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MONTH));
-                        setting.ymd.day = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_DAY));
-                        setting.hour = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_HOUR));
-                        setting.minute = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MINUTE));
-                        setting.musicKey.content = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_CONTENT));
-                        setting.musicKey.id = c.getLong(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_ID));
-                        setting.musicKey.path = c.getString(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_PATH));
-                        setting.musicVolume = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_VOLUME));
-                        setting.musicLength = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_LENGTH));
-                        setting.voice = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_VOICE));
-                        setting.vibrator = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_VIBRATOR));
-                        setting.snoozeMode = AlarmSetting.SnoozeMode.valueOf(c.getString(c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_MODE)));
-                        setting.snoozeLength = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_LENGTH));
-                        setting.snoozeTimes = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_TIMES));
+                        AlarmSetting setting = mapper.map(c);
+                        setting.schedule = new AlarmSchedule(setting);
                         settings.add(setting);
                     } while(c.moveToNext());
                 }
@@ -869,7 +1705,12 @@ public class DataManager {
      * @return アラーム設定
      */
     public AlarmSetting selectAlarmSetting(long id) {
-        AlarmSetting setting = null;
+        // キャッシュにあればDBから読み込まない
+        AlarmSetting setting = AlarmSettingCache.get(id);
+        if (setting != null) {
+            return setting;
+        }
+        long generation = AlarmSettingCache.getGeneration();
 
         // DBオープン
         if (!open(false)) {
@@ -884,28 +1725,10 @@ public class DataManager {
 
             // 値の取得
             if (c != null) {
+                AlarmSettingMapper mapper = new AlarmSettingMapper(c);
                 if(c.moveToFirst()){
-                    setting = new AlarmSetting();
-                    setting.id = c.getLong(c.getColumnIndex(ALARM_SETTING_COL_ID));
-                    setting.onOff = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_ON_OFF));
-                    setting.title = c.getString(c.getColumnIndex(ALARM_SETTING_COL_TITLE));
-                    setting.repeat = AlarmSetting.Repeat.valueOf(c.getString(c.getColumnIndex(ALARM_SETTING_COL_REPEAT)));
-                    setting.week = AlarmSetting.intToWeekSet(c.getInt(c.getColumnIndex(ALARM_SETTING_COL_WEEK)));
-                    setting.ymd.year = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_YEAR));
-                    setting.ymd.month = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MONTH));
-                    setting.ymd.day = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_DAY));
-                    setting.hour = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_HOUR));
-                    setting.minute = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MINUTE));
-                    setting.musicKey.content = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_CONTENT));
-                    setting.musicKey.id = c.getLong(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_ID));
-                    setting.musicKey.path = c.getString(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_PATH));
-                    setting.musicVolume = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_VOLUME));
-                    setting.musicLength = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_MUSIC_LENGTH));
-                    setting.voice = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_VOICE));
-                    setting.vibrator = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_VIBRATOR));
-                    setting.snoozeMode = AlarmSetting.SnoozeMode.valueOf(c.getString(c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_MODE)));
-                    setting.snoozeLength = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_LENGTH));
-                    setting.snoozeTimes = c.getInt(c.getColumnIndex(ALARM_SETTING_COL_SNOOZE_TIMES));
+                    setting = mapper.map(c);
+                    setting.schedule = new AlarmSchedule(setting);
                 }
                 c.close();
             }
@@ -916,6 +1739,11 @@ public class DataManager {
             // DBクローズ
             close();
         }
+
+        // キャッシュに追加
+        if (setting != null) {
+            AlarmSettingCache.put(setting, generation);
+        }
         return setting;
     }
 
@@ -943,7 +1771,7 @@ public class DataManager {
             values.put(ALARM_SETTING_COL_ON_OFF, setting.onOff);
             values.put(ALARM_SETTING_COL_TITLE, setting.title);
             values.put(ALARM_SETTING_COL_REPEAT, setting.repeat.toString());
-            values.put(ALARM_SETTING_COL_WEEK, AlarmSetting.weekSetToInt(setting.week));
+            values.put(ALARM_SETTING_COL_WEEK, setting.getWeekMask());
             values.put(ALARM_SETTING_COL_YEAR, setting.ymd.year);
             values.put(ALARM_SETTING_COL_MONTH, setting.ymd.month);
             values.put(ALARM_SETTING_COL_DAY, setting.ymd.day);
@@ -978,11 +1806,112 @@ public class DataManager {
         }
 
         if (num > 0) {
+            // キャッシュとインデックスに反映
+            AlarmSettingCache.invalidate(id);
+            if (id != setting.id) {
+                AlarmSettingCache.invalidate(setting.id);
+                AlarmScheduleIndex.remove(id);
+            }
+            AlarmScheduleIndex.put(setting);
             return true;
         }
         return false;
     }
 
+    /**
+     * アラーム設定テーブル更新（複数件）
+     * @param settings アラーム設定のリスト（IDが一致する行を更新）
+     * @return 全て更新できた場合はtrue
+     */
+    public boolean updateAlarmSettings(List<AlarmSetting> settings) {
+        if (settings.isEmpty()) {
+            return true;
+        }
+        List<AlarmSetting> updated = new ArrayList<AlarmSetting>(settings.size());
+
+        // DBオープン
+        if (!open(true)) {
+            return false;
+        }
+
+        try {
+            // トランザクション開始
+            mDb.beginTransaction();
+
+            // SQL作成（全件で使い回す）
+            SQLiteStatement stmt = mDb.compileStatement("update " + ALARM_SETTING_TABLE_NAME + " set " +
+                                                         ALARM_SETTING_COL_ON_OFF + " = ?," +
+                                                         ALARM_SETTING_COL_TITLE + " = ?," +
+                                                         ALARM_SETTING_COL_REPEAT + " = ?," +
+                                                         ALARM_SETTING_COL_WEEK + " = ?," +
+                                                         ALARM_SETTING_COL_YEAR + " = ?," +
+                                                         ALARM_SETTING_COL_MONTH + " = ?," +
+                                                         ALARM_SETTING_COL_DAY + " = ?," +
+                                                         ALARM_SETTING_COL_HOUR + " = ?," +
+                                                         ALARM_SETTING_COL_MINUTE + " = ?," +
+                                                         ALARM_SETTING_COL_MUSIC_CONTENT + " = ?," +
+                                                         ALARM_SETTING_COL_MUSIC_ID + " = ?," +
+                                                         ALARM_SETTING_COL_MUSIC_PATH + " = ?," +
+                                                         ALARM_SETTING_COL_MUSIC_VOLUME + " = ?," +
+                                                         ALARM_SETTING_COL_MUSIC_LENGTH + " = ?," +
+                                                         ALARM_SETTING_COL_VOICE + " = ?," +
+                                                         ALARM_SETTING_COL_VIBRATOR + " = ?," +
+                                                         ALARM_SETTING_COL_SNOOZE_MODE + " = ?," +
+                                                         ALARM_SETTING_COL_SNOOZE_LENGTH + " = ?," +
+                                                         ALARM_SETTING_COL_SNOOZE_TIMES + " = ?" +
+                                                         " where " + ALARM_SETTING_COL_ID + " = ?;");
+            try {
+                // データ更新
+                for (AlarmSetting setting : settings) {
+                    stmt.bindLong(1, setting.onOff);
+                    stmt.bindString(2, setting.title);
+                    stmt.bindString(3, setting.repeat.toString());
+                    stmt.bindLong(4, setting.getWeekMask());
+                    stmt.bindLong(5, setting.ymd.year);
+                    stmt.bindLong(6, setting.ymd.month);
+                    stmt.bindLong(7, setting.ymd.day);
+                    stmt.bindLong(8, setting.hour);
+                    stmt.bindLong(9, setting.minute);
+                    stmt.bindLong(10, setting.musicKey.content);
+                    stmt.bindLong(11, setting.musicKey.id);
+                    bindStringOrNull(stmt, 12, setting.musicKey.path);
+                    stmt.bindLong(13, setting.musicVolume);
+                    stmt.bindLong(14, setting.musicLength);
+                    stmt.bindLong(15, setting.voice);
+                    stmt.bindLong(16, setting.vibrator);
+                    stmt.bindString(17, setting.snoozeMode.toString());
+                    stmt.bindLong(18, setting.snoozeLength);
+                    stmt.bindLong(19, setting.snoozeTimes);
+                    stmt.bindLong(20, setting.id);
+                    if (stmt.executeUpdateDelete() > 0) {
+                        updated.add(setting);
+                    }
+                }
+            } finally {
+                stmt.close();
+            }
+
+            // コミット
+            mDb.setTransactionSuccessful();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Update alarm settings error!", e, true, false);
+            updated.clear();
+        } finally {
+            // トランザクション終了
+            mDb.endTransaction();
+
+            // DBクローズ
+            close();
+        }
+
+        // キャッシュとインデックスに反映
+        for (AlarmSetting setting : updated) {
+            AlarmSettingCache.invalidate(setting.id);
+            AlarmScheduleIndex.put(setting);
+        }
+        return updated.size() == settings.size();
+    }
+
     /**
      * アラーム設定テーブル削除
      * @return 削除した場合はtrue
@@ -1015,12 +1944,91 @@ public class DataManager {
             close();
         }
 
+        // キャッシュとインデックスを破棄
+        AlarmSettingCache.invalidateAll();
+        AlarmScheduleIndex.invalidate();
+
+        if (num > 0) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * アラーム設定テーブル削除（1件）
+     * @param id ID
+     * @return 削除した場合はtrue
+     */
+    public boolean deleteAlarmSetting(long id) {
+        int num = 0;
+
+        // DBオープン
+        if (!open(true)) {
+            return false;
+        }
+
+        try {
+            // トランザクション開始
+            mDb.beginTransaction();
+
+            // データ削除
+            num = mDb.delete(ALARM_SETTING_TABLE_NAME,
+                ALARM_SETTING_COL_ID + " = ?", new String[]{Long.toString(id)});
+
+            // コミット
+            mDb.setTransactionSuccessful();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Delete alarm setting error!", e, true, false);
+            return false;
+        } finally {
+            // トランザクション終了
+            mDb.endTransaction();
+
+            // DBクローズ
+            close();
+        }
+
         if (num > 0) {
+            // キャッシュとインデックスに反映
+            AlarmSettingCache.invalidate(id);
+            AlarmScheduleIndex.remove(id);
             return true;
         }
         return false;
     }
 
+    /**
+     * アラーム設定テーブルの最大ID取得
+     * @return 最大ID（データがない場合は-1）
+     */
+    public long getMaxAlarmSettingId() {
+        long maxId = -1;
+
+        // DBオープン
+        if (!open(false)) {
+            return -1;
+        }
+
+        try {
+            // 最大ID取得（主キーのため全件走査しない）
+            Cursor c = mDb.rawQuery("select max(" + ALARM_SETTING_COL_ID + ") from " + ALARM_SETTING_TABLE_NAME, null);
+
+            // 最大IDの取得
+            if (c != null) {
+                if(c.moveToFirst() && !c.isNull(0)){
+                    maxId = c.getLong(0);
+                }
+                c.close();
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Max alarm setting id error!", e, true, false);
+        } finally {
+            // DBクローズ
+            close();
+        }
+        return maxId;
+    }
+
     /**
      * アラーム設定テーブル件数取得
      * @return 件数
@@ -1059,6 +2067,15 @@ public class DataManager {
      * @return 追加した場合はtrue
      */
     public boolean insertErrorInf(String text) {
+        return insertErrorInfs(Collections.singletonList(text));
+    }
+
+    /**
+     * エラー情報テーブル追加（複数件）
+     * @param texts テキストのリスト
+     * @return 追加した場合はtrue
+     */
+    public boolean insertErrorInfs(List<String> texts) {
         long id = -1;
 
         // DBオープン
@@ -1076,12 +2093,18 @@ public class DataManager {
                                                          ") values (?);"); 
 
             // データ追加
-            stmt.bindString(1, text);
-            id = stmt.executeInsert();
-            if (id < 0) {
-                AlarmClockApp.outputError(mContext, "Insert error inf error!", null, true, false);
+            for (String text : texts) {
+                stmt.bindString(1, text);
+                id = stmt.executeInsert();
+                if (id < 0) {
+                    AlarmClockApp.outputError(mContext, "Insert error inf error!", null, true, false);
+                    break;
+                }
             }
 
+            // 古いデータを削除
+            trimErrorInf();
+
             // コミット
             mDb.setTransactionSuccessful();
         } catch (Exception e) {
@@ -1101,6 +2124,24 @@ public class DataManager {
         return true;
     }
 
+    /**
+     * エラー情報テーブルの古いデータを削除（DBオープン済みの場合）
+     * （最大件数を削除単位以上超えた場合に、最大件数になるまでまとめて削除する）
+     */
+    private void trimErrorInf() {
+        // IDは追加順のため、IDの範囲から件数を求める
+        SQLiteStatement stmt = mDb.compileStatement("select ifnull(max(" + ERROR_INF_COL_ID + "),0) - ifnull(min(" +
+                                                     ERROR_INF_COL_ID + "),0) + 1 from " + ERROR_INF_TABLE_NAME);
+        long count = stmt.simpleQueryForLong();
+        if (count <= ERROR_INF_MAX_ROWS + ERROR_INF_TRIM_ROWS) {
+            return;
+        }
+
+        // 新しい方から最大件数分を残して削除
+        mDb.execSQL("delete from " + ERROR_INF_TABLE_NAME + " where " + ERROR_INF_COL_ID + " <= " +
+                    "(select max(" + ERROR_INF_COL_ID + ") from " + ERROR_INF_TABLE_NAME + ") - " + ERROR_INF_MAX_ROWS);
+    }
+
     /**
      * エラー情報テーブル取得
      * @return テキストのリスト
@@ -1119,9 +2160,10 @@ public class DataManager {
 
             // 値の取得
             if (c != null) {
+                int textColumn = c.getColumnIndex(ERROR_INF_COL_TEXT);
                 if(c.moveToFirst()){
                     do {
-                        String text = c.getString(c.getColumnIndex(ERROR_INF_COL_TEXT));
+                        String text = c.getString(textColumn);
                         texts.add(text);
                     } while(c.moveToNext());
                 }
@@ -1175,6 +2217,82 @@ public class DataManager {
         return false;
     }
 
+    /**
+     * SQLの実行計画取得（テスト用）
+     * @param sql SQL
+     * @param args 引数
+     * @return 実行計画の行のリスト
+     */
+    public List<String> explainQueryPlan(String sql, String[] args) {
+        List<String> plan = new ArrayList<String>();
+
+        // DBオープン
+        if (!open(false)) {
+            return null;
+        }
+
+        try {
+            // 実行計画取得
+            Cursor c = mDb.rawQuery("explain query plan " + sql, args);
+
+            // 値の取得
+            if (c != null) {
+                int detailColumn = c.getColumnIndex("detail");
+                if(c.moveToFirst()){
+                    do {
+                        plan.add(c.getString(detailColumn));
+                    } while(c.moveToNext());
+                }
+                c.close();
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Explain query plan error!", e, true, false);
+            plan = null;
+        } finally {
+            // DBクローズ
+            close();
+        }
+        return plan;
+    }
+
+    /**
+     * 書き込みのトランザクションを指定時間保持（テスト用）
+     * （アラーム設定テーブルを更新したまま待ち、最後にロールバックする）
+     * @param millis 保持する時間（ミリ秒）
+     * @param locked 書き込みを開始した時にカウントダウンするラッチ
+     * @return 保持できた場合はtrue
+     */
+    public boolean holdWriteTransaction(long millis, CountDownLatch locked) {
+        // DBオープン
+        if (!open(true)) {
+            return false;
+        }
+
+        try {
+            // トランザクション開始
+            mDb.beginTransaction();
+            try {
+                // 書き込みのロックを取得（コミットしないので変更は残らない）
+                mDb.execSQL("update " + ALARM_SETTING_TABLE_NAME + " set " +
+                        ALARM_SETTING_COL_ON_OFF + " = " + ALARM_SETTING_COL_ON_OFF);
+                locked.countDown();
+                Thread.sleep(millis);
+            } finally {
+                // トランザクション終了（ロールバック）
+                mDb.endTransaction();
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(mContext, "Hold write transaction error!", e, true, false);
+            return false;
+        } finally {
+            locked.countDown();
+
+            // DBクローズ
+            close();
+        }
+        return true;
+    }
+
     /**
      * DBオープン
      * @param bWritable 書き込み用の場合はtrue
@@ -1182,10 +2300,29 @@ public class DataManager {
      */
     private boolean open(boolean bWritable) {
         try {
-            if (bWritable) {
-                mDb = mDbHelper.getWritableDatabase();
-            } else {
-                mDb = mDbHelper.getReadableDatabase();
+            synchronized (sDbLock) {
+                // 初回のみDBをオープン（以降は共有する）
+                if (sDbHelper == null) {
+                    Context appContext = mContext.getApplicationContext();
+                    sDbHelper = new DatabaseHelper(appContext != null ? appContext : mContext);
+                }
+                if (sDb == null || !sDb.isOpen()) {
+                    try {
+                        sDb = sDbHelper.getWritableDatabase();
+                    } catch (Exception e) {
+                        // 読み込み用の場合は読み込み専用でオープン
+                        if (bWritable) {
+                            throw e;
+                        }
+                        sDb = sDbHelper.getReadableDatabase();
+                    }
+                }
+                if (bWritable && sDb.isReadOnly()) {
+                    sDb = sDbHelper.getWritableDatabase();
+                }
+                mDb = sDb;
+                sOpenCount++;
+                bShutdown = false;
             }
         } catch (Exception e) {
             AlarmClockApp.outputError(mContext, "DB Open error!", e, true, false);
@@ -1196,77 +2333,61 @@ public class DataManager {
 
     /**
      * DBクローズ
+     * （終了要求がない限りDBはオープンしたままにする）
      */
     private void close() {
         try {
-            mDbHelper.close();
+            synchronized (sDbLock) {
+                mDb = null;
+                sOpenCount--;
+                if (sOpenCount == 0 && bShutdown) {
+                    closeDatabaseLocked();
+                }
+            }
         } catch (Exception e) {
             AlarmClockApp.outputError(mContext, "DB Close error!", e, true, false);
         }
     }
 
     /**
-     * スヌーズ残り回数取得
-     * @param context コンテキスト
-     * @return スヌーズ残り回数
+     * 共有しているDBをクローズ
+     * （使用中の場合は全ての使用が終わった時にクローズする）
      */
-    public static int getSnoozeRemainTimes(Context context) {
-        int snoozeRemainTimes = 0;
-        try {
-            SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context); 
-            snoozeRemainTimes = sp.getInt(KEY_SNOOZE_REMAIN_TIMES, snoozeRemainTimes);
-        } catch (Exception e) {
-            AlarmClockApp.outputError(context, "Get snooze remain times error!", e, true, true);
+    public static void closeDatabase() {
+        synchronized (sDbLock) {
+            bShutdown = true;
+            if (sOpenCount == 0) {
+                closeDatabaseLocked();
+            }
         }
-        return snoozeRemainTimes;
     }
 
     /**
-     * スヌーズ残り回数設定
-     * @param context コンテキスト
-     * @param snoozeRemainTimes スヌーズ残り回数
+     * 共有しているDBをクローズ（ロック取得済みの場合）
      */
-    public static void setSnoozeRemainTimes(Context context, int snoozeRemainTimes) {
-        try {
-            SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-            Editor e = sp.edit();
-            e.putInt(KEY_SNOOZE_REMAIN_TIMES, snoozeRemainTimes);
-            e.commit();
-        } catch (Exception e) {
-            AlarmClockApp.outputError(context, "Set snooze remain times error!", e, true, true);
+    private static void closeDatabaseLocked() {
+        if (sDbHelper != null) {
+            sDbHelper.close();
         }
+        sDb = null;
     }
 
     /**
-     * アラームキー取得
+     * スヌーズ残り回数取得
      * @param context コンテキスト
-     * @return アラームキー
+     * @return スヌーズ残り回数
      */
-    public static String getAlarmKey(Context context) {
-        String alarmKey = "";
-        try {
-            SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context); 
-            alarmKey = sp.getString(KEY_ALARM_KEY, alarmKey);
-        } catch (Exception e) {
-            AlarmClockApp.outputError(context, "Get alarm key error!", e, true, true);
-        }
-        return alarmKey;
+    public static int getSnoozeRemainTimes(Context context) {
+        return AlarmStateStore.get(context).snoozeRemainTimes;
     }
 
     /**
-     * アラームキー設定
+     * アラームキー取得
      * @param context コンテキスト
-     * @param alarmKey アラームキー
+     * @return アラームキー
      */
-    public static void setAlarmKey(Context context, String alarmKey) {
-        try {
-            SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(context);
-            Editor e = sp.edit();
-            e.putString(KEY_ALARM_KEY, alarmKey);
-            e.commit();
-        } catch (Exception e) {
-            AlarmClockApp.outputError(context, "Set alarm key error!", e, true, true);
-        }
+    public static String getAlarmKey(Context context) {
+        return AlarmStateStore.get(context).alarmKey;
     }
 
     /**
@@ -1283,6 +2404,9 @@ public class DataManager {
                     AlarmClockApp.outputError(context, "Clear preferences error!", null, true, true);
                 }
             }
+
+            // 保持しているアラームの状態も初期状態に戻す
+            AlarmStateStore.clear();
         } catch (Exception e) {
             AlarmClockApp.outputError(context, "Clear preferences error!", e, true, true);
         }
@@ -0,0 +1,169 @@
+package com.esp.android.alarmclock;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import android.content.Context;
+
+/**
+ * エラー情報をまとめてDBに出力するクラス
+ * （呼び出し元はキューに追加するだけで、DBへの書き込みはバックグラウンドのスレッドで行う）
+ */
+public class ErrorLogWriter {
+
+    // キューの最大件数
+    private static final int QUEUE_CAPACITY = 256;
+
+    // 1回のトランザクションで書き込む最大件数
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * キューの要素
+     */
+    private static class Entry {
+        // 発生日時（UTC）
+        final long timeInMillis;
+
+        // テキスト
+        final String text;
+
+        /**
+         * コンストラクタ
+         */
+        Entry(long timeInMillis, String text) {
+            this.timeInMillis = timeInMillis;
+            this.text = text;
+        }
+    }
+
+    // 書き込み待ちのキュー
+    private static final BlockingQueue<Entry> sQueue = new ArrayBlockingQueue<Entry>(QUEUE_CAPACITY);
+
+    // 書き込み用のコンテキスト
+    private static Context sContext;
+
+    // 書き込み用のスレッド
+    private static Thread sThread;
+
+    // 書き込みが終わっていない件数（キューと書き込み中の合計）
+    private static int sPending = 0;
+
+    // キューが一杯で捨てた件数
+    private static int sDropped = 0;
+
+    // ロック用オブジェクト
+    private static final Object sLock = new Object();
+
+    /**
+     * エラー情報をキューに追加
+     * @param context コンテキスト
+     * @param text テキスト
+     */
+    public static void write(Context context, String text) {
+        synchronized (sLock) {
+            // 初回のみスレッドを開始
+            if (sThread == null) {
+                Context appContext = context.getApplicationContext();
+                sContext = (appContext != null) ? appContext : context;
+                sThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        writeLoop();
+                    }
+                }, "ErrorLogWriter");
+                sThread.setDaemon(true);
+                sThread.setPriority(Thread.MIN_PRIORITY);
+                sThread.start();
+            }
+
+            // キューが一杯の場合は捨てる（件数は後で書き込む）
+            if (!sQueue.offer(new Entry(System.currentTimeMillis(), text))) {
+                sDropped++;
+                return;
+            }
+            sPending++;
+        }
+    }
+
+    /**
+     * キューの全てのエラー情報が書き込まれるまで待つ
+     * @param timeoutMillis 最大待ち時間(ms)
+     */
+    public static void flush(long timeoutMillis) {
+        long end = System.currentTimeMillis() + timeoutMillis;
+        synchronized (sLock) {
+            try {
+                while (sPending > 0) {
+                    long wait = end - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    sLock.wait(wait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * キューから取り出してDBに書き込む処理（書き込み用のスレッドで実行）
+     */
+    private static void writeLoop() {
+        SimpleDateFormat format = new SimpleDateFormat("[yyyy/MM/dd HH:mm:ss]");
+        List<Entry> batch = new ArrayList<Entry>(BATCH_SIZE);
+        List<String> texts = new ArrayList<String>(BATCH_SIZE + 1);
+        try {
+            while (true) {
+                // 1件目が来るまで待って、溜まっている分をまとめて取り出す
+                batch.add(sQueue.take());
+                sQueue.drainTo(batch, BATCH_SIZE - 1);
+
+                int dropped;
+                synchronized (sLock) {
+                    dropped = sDropped;
+                    sDropped = 0;
+                }
+
+                try {
+                    // 日時を付けたテキストを作成
+                    for (Entry entry : batch) {
+                        texts.add(format.format(new Date(entry.timeInMillis)) + " " + entry.text);
+                    }
+                    if (dropped > 0) {
+                        texts.add(format.format(new Date()) + " " + dropped + " errors dropped.");
+                    }
+
+                    // 1回のトランザクションで書き込む
+                    DataManager dataManager = new DataManager(sContext);
+                    dataManager.insertErrorInfs(texts);
+                } catch (Exception e) {
+                    // 書き込めなかった場合は捨てて、次の書き込みで件数を出力する
+                    synchronized (sLock) {
+                        sDropped += batch.size();
+                    }
+                }
+
+                synchronized (sLock) {
+                    sPending -= batch.size();
+                    sLock.notifyAll();
+                }
+                batch.clear();
+                texts.clear();
+            }
+        } catch (InterruptedException e) {
+            // スレッド終了
+        } finally {
+            // スレッドが終了した場合は、次の追加時に新しいスレッドを開始する
+            synchronized (sLock) {
+                sThread = null;
+                sPending = sQueue.size();
+                sLock.notifyAll();
+            }
+        }
+    }
+}
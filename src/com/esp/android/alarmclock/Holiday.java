@@ -1,13 +1,28 @@
 package com.esp.android.alarmclock;
 
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * 休日チェック用クラス
  */
 public class Holiday {
 
+    // 休日テーブルのキャッシュ件数
+    private static final int TABLE_CACHE_SIZE = 8;
+
+    // 年毎の休日テーブルのキャッシュ（1年366ビット）
+    private static final Map<Integer, long[]> sTableCache =
+            new LinkedHashMap<Integer, long[]>(TABLE_CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, long[]> eldest) {
+            return size() > TABLE_CACHE_SIZE;
+        }
+    };
+
     /**
      * 休日チェック
      * @param year 年
@@ -16,6 +31,83 @@ public class Holiday {
      * @return 休日の場合はtrue
      */
     public static boolean isHoliday(int year, int month, int day) {
+        // 範囲外の日付はテーブルを使わずにチェック
+        if (month < 1 || month > 12 || day < 1 || day > CivilDate.daysInMonth(year, month)) {
+            return checkHoliday(year, month, day);
+        }
+
+        // 休日テーブルのビットを参照
+        long[] table = getTable(year);
+        int dayOfYear = CivilDate.dayOfYear(year, month, day);
+        return (table[dayOfYear >>> 6] & (1L << dayOfYear)) != 0;
+    }
+
+    /**
+     * 指定日以降で最初の休日を取得
+     * （毎週日曜日があるため翌年までの検索で必ず見つかる）
+     * @param epochDay 1970/1/1からの日数
+     * @return 休日の1970/1/1からの日数
+     */
+    public static long nextHoliday(long epochDay) {
+        int year = CivilDate.yearOfEpochDay(epochDay);
+        long firstDay = CivilDate.epochDay(year, 1, 1);
+        int dayOfYear = (int)(epochDay - firstDay);
+        while (true) {
+            // 休日テーブルから指定位置以降の最下位ビットを探す
+            long[] table = getTable(year);
+            for (int i = dayOfYear >>> 6; i < table.length; i++) {
+                long bits = table[i];
+                if (i == (dayOfYear >>> 6)) {
+                    bits &= -1L << dayOfYear;
+                }
+                if (bits != 0) {
+                    return firstDay + (i << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+
+            // 見つからなければ翌年の元旦から探す
+            firstDay += CivilDate.isLeapYear(year) ? 366 : 365;
+            year++;
+            dayOfYear = 0;
+        }
+    }
+
+    /**
+     * 休日テーブルを取得（なければ作成してキャッシュする）
+     * @param year 年
+     * @return 休日テーブル（元旦がビット0）
+     */
+    private static long[] getTable(int year) {
+        // 祝日の有無はロケールで変わるためキーに含める
+        boolean japan = Locale.JAPAN.equals(Locale.getDefault());
+        Integer key = Integer.valueOf((year << 1) | (japan ? 1 : 0));
+        synchronized (sTableCache) {
+            long[] table = sTableCache.get(key);
+            if (table == null) {
+                table = new long[6];
+                for (int month = 1; month <= 12; month++) {
+                    int days = CivilDate.daysInMonth(year, month);
+                    for (int day = 1; day <= days; day++) {
+                        if (checkHoliday(year, month, day)) {
+                            int dayOfYear = CivilDate.dayOfYear(year, month, day);
+                            table[dayOfYear >>> 6] |= 1L << dayOfYear;
+                        }
+                    }
+                }
+                sTableCache.put(key, table);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * 休日チェック（規則を順番に判定する）
+     * @param year 年
+     * @param month 月
+     * @param day 日
+     * @return 休日の場合はtrue
+     */
+    private static boolean checkHoliday(int year, int month, int day) {
 
         // 日曜日
         if (isSunday(year, month, day)) {
@@ -140,16 +232,10 @@ public class Holiday {
      * @return 成人の日の場合はtrue
      */
     private static boolean isComingOfAgeDay(int year, int month, int day) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(year, month-1, day);
-        int dayOfWeekInMonth = calendar.get(Calendar.DAY_OF_WEEK_IN_MONTH);
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
 
         if (month == 1) { // １月
-            if (dayOfWeekInMonth == 2) { // 第２
-                if (dayOfWeek == Calendar.MONDAY) { // 月曜日
-                    return true;
-                }
+            if (day == CivilDate.nthDayOfWeek(year, month, 2, Calendar.MONDAY)) { // 第２月曜日
+                return true;
             }
         }
         return false;
@@ -188,7 +274,7 @@ public class Holiday {
 
         if (year > 1979 && year < 2100) { // 1980～2100年まで有効
             if (month == 3) { // ３月
-                int daySpringEquinox = (int)(20.8431+(0.242194*(year-1980))-((year-1980)/4));
+                int daySpringEquinox = CivilDate.springEquinoxDay(year);
                 if (day == daySpringEquinox) {
                     return true;
                 }
@@ -298,16 +384,10 @@ public class Holiday {
      * @return 海の日の場合はtrue
      */
     private static boolean isSeaDay(int year, int month, int day) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(year, month-1, day);
-        int dayOfWeekInMonth = calendar.get(Calendar.DAY_OF_WEEK_IN_MONTH);
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
 
         if (month == 7) { // ７月
-            if (dayOfWeekInMonth == 3) { // 第３
-                if (dayOfWeek == Calendar.MONDAY) { // 月曜日
-                    return true;
-                }
+            if (day == CivilDate.nthDayOfWeek(year, month, 3, Calendar.MONDAY)) { // 第３月曜日
+                return true;
             }
         }
         return false;
@@ -321,16 +401,10 @@ public class Holiday {
      * @return 敬老の日の場合はtrue
      */
     private static boolean isRespectForAgeDay(int year, int month, int day) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(year, month-1, day);
-        int dayOfWeekInMonth = calendar.get(Calendar.DAY_OF_WEEK_IN_MONTH);
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
 
         if (month == 9) { // ９月
-            if (dayOfWeekInMonth == 3) { // 第３
-                if (dayOfWeek == Calendar.MONDAY) { // 月曜日
-                    return true;
-                }
+            if (day == CivilDate.nthDayOfWeek(year, month, 3, Calendar.MONDAY)) { // 第３月曜日
+                return true;
             }
         }
         return false;
@@ -347,7 +421,7 @@ public class Holiday {
 
         if (year > 1979 && year < 2100) { // 1980～2100年まで有効
             if (month == 9) { // ９月
-                int dayAutumnEquinox = (int)(23.2488+(0.242194*(year-1980))-((year-1980)/4));
+                int dayAutumnEquinox = CivilDate.autumnEquinoxDay(year);
                 if (day == dayAutumnEquinox) {
                     return true;
                 }
@@ -384,16 +458,10 @@ public class Holiday {
      * @return 体育の日の場合はtrue
      */
     private static boolean isHealthSportsDay(int year, int month, int day) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(year, month-1, day);
-        int dayOfWeekInMonth = calendar.get(Calendar.DAY_OF_WEEK_IN_MONTH);
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
 
         if (month == 10) { // １０月
-            if (dayOfWeekInMonth == 2) { // 第２
-                if (dayOfWeek == Calendar.MONDAY) { // 月曜日
-                    return true;
-                }
+            if (day == CivilDate.nthDayOfWeek(year, month, 2, Calendar.MONDAY)) { // 第２月曜日
+                return true;
             }
         }
         return false;
@@ -473,10 +541,7 @@ public class Holiday {
      * @return 日曜日の場合はtrue
      */
     private static boolean isSunday(int year, int month, int day) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.set(year, month-1, day);
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-        if (dayOfWeek == Calendar.SUNDAY) {
+        if (CivilDate.dayOfWeek(year, month, day) == Calendar.SUNDAY) {
             return true;
         }
         return false;
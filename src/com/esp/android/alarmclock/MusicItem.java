@@ -52,16 +52,43 @@ public class MusicItem implements Serializable, Comparable<Object> {
     // 長さ(ms)
     final long duration;
 
+    // 更新日時（MediaStoreのDATE_MODIFIED、それ以外は0）
+    final long dateModified;
+
+    // ファイルパス（取得していない場合はnull）
+    final String path;
+
     /**
      * コンストラクタ
      */
     public MusicItem(int content, long id, int type, String artist, String title, long duration) {
+        this(content, id, type, artist, title, duration, 0);
+    }
+
+    /**
+     * コンストラクタ
+     */
+    public MusicItem(int content, long id, int type, String artist, String title, long duration, long dateModified) {
+        this(content, id, type, artist, title, duration, dateModified, null);
+    }
+
+    /**
+     * コンストラクタ
+     */
+    public MusicItem(int content, long id, int type, String artist, String title, long duration, long dateModified, String path) {
         this.content = content;
         this.id = id;
         this.type = type;
         this.artist = artist;
         this.title = title;
         this.duration = duration;
+        this.dateModified = dateModified;
+
+        // オリジナルとランダムのファイルパスは名前から決める
+        if (path == null && (content == CONTENT_ORIGINAL || content == CONTENT_RANDOM)) {
+            path = "/" + artist + "/" + title;
+        }
+        this.path = path;
     }
 
     /**
@@ -74,6 +101,8 @@ public class MusicItem implements Serializable, Comparable<Object> {
         this.artist = item.artist;
         this.title = item.title;
         this.duration = item.duration;
+        this.dateModified = item.dateModified;
+        this.path = item.path;
     }
 
     /**
@@ -96,6 +125,18 @@ public class MusicItem implements Serializable, Comparable<Object> {
      * @param context コンテキスト
      */
     public String getPath(Context context) {
+        // 取得済みの場合はそのまま返す
+        if (path != null) {
+            return path;
+        }
+
+        // DBに登録されている場合はDBから取得
+        DataManager dataManager = new DataManager(context);
+        String dbPath = dataManager.selectMusicItemPath(content, id);
+        if (dbPath != null) {
+            return dbPath;
+        }
+
         String filePath = "";
         if (content == CONTENT_ORIGINAL || content == CONTENT_RANDOM) {
             filePath = "/" + artist + "/" + title;
@@ -159,7 +200,9 @@ public class MusicItem implements Serializable, Comparable<Object> {
                                     MediaStore.Audio.Media.TITLE,
                                     MediaStore.Audio.Media.DURATION,
                                     MediaStore.Audio.Media._ID,
-                                    MediaStore.Audio.Media.IS_MUSIC},
+                                    MediaStore.Audio.Media.IS_MUSIC,
+                                    MediaStore.Audio.Media.DATE_MODIFIED,
+                                    MediaStore.Audio.Media.DATA},
                             MediaStore.Audio.Media.IS_MUSIC + " = 1 OR " +
                             MediaStore.Audio.Media.IS_ALARM + " = 1 OR " +
                             MediaStore.Audio.Media.IS_RINGTONE + " = 1",
@@ -173,7 +216,9 @@ public class MusicItem implements Serializable, Comparable<Object> {
                                     MediaStore.Audio.Media.TITLE,
                                     MediaStore.Audio.Media.DURATION,
                                     MediaStore.Audio.Media._ID,
-                                    MediaStore.Audio.Media.IS_MUSIC},
+                                    MediaStore.Audio.Media.IS_MUSIC,
+                                    MediaStore.Audio.Media.DATE_MODIFIED,
+                                    MediaStore.Audio.Media.DATA},
                             MediaStore.Audio.Media.IS_MUSIC + " = 1 OR " +
                             MediaStore.Audio.Media.IS_ALARM + " = 1 OR " +
                             MediaStore.Audio.Media.IS_RINGTONE + " = 1",
@@ -188,6 +233,8 @@ public class MusicItem implements Serializable, Comparable<Object> {
                         int durationColumn = cur.getColumnIndex(MediaStore.Audio.Media.DURATION);
                         int idColumn = cur.getColumnIndex(MediaStore.Audio.Media._ID);
                         int isMusicColumn = cur.getColumnIndex(MediaStore.Audio.Media.IS_MUSIC);
+                        int dateModifiedColumn = cur.getColumnIndex(MediaStore.Audio.Media.DATE_MODIFIED);
+                        int dataColumn = cur.getColumnIndex(MediaStore.Audio.Media.DATA);
 
                         do {
                             // IDを取得
@@ -215,11 +262,17 @@ public class MusicItem implements Serializable, Comparable<Object> {
                             // 長さを取得
                             long duration = cur.getLong(durationColumn);
 
+                            // 更新日時を取得
+                            long dateModified = cur.getLong(dateModifiedColumn);
+
+                            // ファイルパスを取得
+                            String path = cur.getString(dataColumn);
+
                             // 種類が音楽の場合は3秒以上のアイテムを追加
                             if (type != TYPE_MUSIC || duration >= 3000) {
                                 // リストに追加
                                 items.add(new MusicItem(content, id, type,
-                                            artist, title, duration));
+                                            artist, title, duration, dateModified, path));
                             }
                         } while (cur.moveToNext());
                     }
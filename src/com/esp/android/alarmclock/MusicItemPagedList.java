@@ -0,0 +1,159 @@
+package com.esp.android.alarmclock;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import android.content.Context;
+
+/**
+ * 音楽テーブルを読み込み専用のリストとして扱うクラス
+ * （表示する位置のページだけDBから読み込み、保持するページ数は一定にする）
+ * （ページは前のページの最後のアイテムの次から読み込み、OFFSETで先頭から数え直さない）
+ */
+public class MusicItemPagedList extends AbstractList<MusicItem> implements RandomAccess {
+
+    // 1ページの件数
+    static final int PAGE_SIZE = 100;
+
+    // 保持するページ数
+    static final int MAX_PAGES = 5;
+
+    // データ管理
+    private final DataManager mDataManager;
+
+    // メディアの種類
+    private final int mType;
+
+    // アーティスト
+    private final String mArtist;
+
+    // 件数
+    private final int mSize;
+
+    // 読み込み済みのページ（最近使ったものから保持する）
+    private final Map<Integer, List<MusicItem>> mPages =
+        new LinkedHashMap<Integer, List<MusicItem>>(MAX_PAGES + 1, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<MusicItem>> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+
+    // 読み込んだページの最後のアイテムのキー（次のページを読み込む位置）
+    private final Map<Integer, Anchor> mAnchors = new HashMap<Integer, Anchor>();
+
+    /**
+     * ページの最後のアイテムのキー
+     */
+    private static class Anchor {
+        // 並び順のキー
+        final String sortKey;
+
+        // rowid
+        final long rowId;
+
+        /**
+         * コンストラクタ
+         */
+        Anchor(String sortKey, long rowId) {
+            this.sortKey = sortKey;
+            this.rowId = rowId;
+        }
+    }
+
+    /**
+     * コンストラクタ
+     * @param context コンテキスト
+     * @param type メディアの種類
+     * @param artist アーティスト
+     */
+    public MusicItemPagedList(Context context, int type, String artist) {
+        mDataManager = new DataManager(context);
+        mType = type;
+        mArtist = artist;
+        mSize = (int)mDataManager.getMusicItemsCount(type, artist);
+    }
+
+    /**
+     * アイテムを取得
+     * @param location 行番号
+     * @return アイテム（読み込めなかった場合はnull）
+     */
+    @Override
+    public MusicItem get(int location) {
+        if (location < 0 || location >= mSize) {
+            throw new IndexOutOfBoundsException("Invalid index " + location + ", size is " + mSize);
+        }
+
+        // ページがなければDBから読み込む
+        Integer page = Integer.valueOf(location / PAGE_SIZE);
+        List<MusicItem> items = mPages.get(page);
+        if (items == null) {
+            items = loadPage(page.intValue());
+            if (items == null) {
+                return null;
+            }
+            mPages.put(page, items);
+        }
+
+        // DBの件数が減っていた場合はnull
+        int index = location % PAGE_SIZE;
+        if (index >= items.size()) {
+            return null;
+        }
+        return items.get(index);
+    }
+
+    /**
+     * ページをDBから読み込む
+     * （直前のページのキーの次から読み込む。離れた位置へ移動した場合は、
+     *   最も近い前のページのキーからインデックス順に読み飛ばす）
+     * @param page ページ番号
+     * @return アイテムのリスト（読み込めなかった場合はnull）
+     */
+    private List<MusicItem> loadPage(int page) {
+        // 最も近い前のページのキーを探す
+        Anchor anchor = null;
+        int skipPages = page;
+        for (int prev = page - 1; prev >= 0; prev--) {
+            anchor = mAnchors.get(Integer.valueOf(prev));
+            if (anchor != null) {
+                skipPages = page - 1 - prev;
+                break;
+            }
+        }
+
+        DataManager.MusicItemPage result;
+        if (anchor == null) {
+            result = mDataManager.selectMusicItemPage(mType, mArtist, null, -1,
+                                                      skipPages * PAGE_SIZE, PAGE_SIZE);
+        } else {
+            result = mDataManager.selectMusicItemPage(mType, mArtist, anchor.sortKey, anchor.rowId,
+                                                      skipPages * PAGE_SIZE, PAGE_SIZE);
+        }
+        if (result == null) {
+            return null;
+        }
+
+        // 次のページを読み込む位置を保存
+        if (result.lastSortKey != null) {
+            mAnchors.put(Integer.valueOf(page), new Anchor(result.lastSortKey, result.lastRowId));
+        }
+        return result.items;
+    }
+
+    /**
+     * 件数を取得
+     * @return 件数
+     */
+    @Override
+    public int size() {
+        return mSize;
+    }
+}
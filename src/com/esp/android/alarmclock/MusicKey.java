@@ -25,4 +25,13 @@ public class MusicKey {
         this.id = ORIGINAL_ID;
         this.path = "";
     }
+
+    /**
+     * コピーコンストラクタ
+     */
+    public MusicKey(MusicKey musicKey) {
+        this.content = musicKey.content;
+        this.id = musicKey.id;
+        this.path = musicKey.path;
+    }
 }
@@ -10,13 +10,18 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnClickListener;
 import android.content.Intent;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.ListView;
 import android.widget.RadioButton;
 import android.widget.TextView;
@@ -31,12 +36,50 @@ public class MusicListActivity extends Activity {
     private static final int DIALOG_NO_DATA     = 1;
     private static final int DIALOG_MENU        = 2;
 
+    // 検索結果の最大件数
+    private static final int SEARCH_MAX_COUNT = 100;
+
+    // 入力が止まってから検索するまでの時間(ms)
+    private static final long SEARCH_DELAY = 300;
+
     // Adapterオブジェクト
     private MusicItemArrayAdapter mAdapter;
 
     // リストビュー
     private ListView mListView;
 
+    // 検索文字列
+    private EditText mEditSearch;
+
+    // 検索文字列の変更を受け取るリスナー
+    private TextWatcher mSearchWatcher;
+
+    // 検索の開始を遅らせるハンドラ
+    private final Handler mSearchHandler = new Handler();
+
+    // 入力中の検索文字列
+    private String mSearchQuery = "";
+
+    // 入力が止まったら検索を開始する
+    private final Runnable mSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            filterMusicItems(mSearchQuery);
+        }
+    };
+
+    // 実行中の検索（新しい検索を開始したら古い検索の結果は使わない）
+    private SearchTask mSearchTask;
+
+    // 音楽一覧（検索していない時に表示する）
+    private List<MusicItem> mMusicItems;
+
+    // メディアの種類
+    private int mMusicType;
+
+    // アーティスト
+    private String mArtist;
+
     // OKボタン
     private Button mButtonOk;
 
@@ -60,6 +103,7 @@ public class MusicListActivity extends Activity {
 
     /**
      * 音楽リストのArrayAdapter
+     * （リスト項目はDBから表示する位置だけ読み込む）
      */
     private class MusicItemArrayAdapter extends ArrayAdapter<MusicItem> {
         private final int mResourceId;
@@ -68,8 +112,8 @@ public class MusicListActivity extends Activity {
         /**
          * コンストラクタ
          */
-        public MusicItemArrayAdapter(Context context, int resourceId) {
-            super(context, resourceId);
+        public MusicItemArrayAdapter(Context context, int resourceId, List<MusicItem> items) {
+            super(context, resourceId, items);
             mResourceId = resourceId;
         }
 
@@ -128,7 +172,7 @@ public class MusicListActivity extends Activity {
                             MusicItem selectItem = (MusicItem)getItem(((Integer)view.getTag()).intValue());
 
                             // 選択中のアイテムと異なる場合
-                            if (!selectItem.equals(mSelectItem)) {
+                            if (selectItem != null && !selectItem.equals(mSelectItem)) {
                                 // 音楽を停止
                                 AlarmClockWidget.musicStop(getApplicationContext());
 
@@ -145,6 +189,14 @@ public class MusicListActivity extends Activity {
                 // Radioボタンに行番号をセット（常に最新状態にする）
                 holder.buttonRadio.setTag(Integer.valueOf(position));
 
+                // DBから読み込めなかった場合は空欄にする
+                if (musicItem == null) {
+                    holder.buttonRadio.setChecked(false);
+                    holder.textMusicTitle.setText("");
+                    holder.textMusicLength.setText("");
+                    return convertView;
+                }
+
                 // RadioボタンのON/OFFをセット
                 if (musicItem.equals(mSelectItem)) {
                     holder.buttonRadio.setChecked(true);
@@ -214,28 +266,25 @@ public class MusicListActivity extends Activity {
                 setTitle(typeList[musicType]);
             }
 
-            // 音楽一覧を取得
-            DataManager dataManager = new DataManager(getApplicationContext());
-            List<MusicItem> musicItems = dataManager.selectMusicItems(musicType, artist);
-            if (musicItems == null || musicItems.size() == 0) {
+            // 音楽一覧を取得（表示する位置だけ読み込む）
+            mMusicType = musicType;
+            mArtist = artist;
+            mMusicItems = new MusicItemPagedList(getApplicationContext(), musicType, artist);
+            if (mMusicItems.size() == 0) {
                 // データなしダイアログを表示
                 showDialog(DIALOG_NO_DATA);
                 return;
             }
 
             // Adapterオブジェクトを作成
-            if (mAdapter == null) {
-                mAdapter = new MusicItemArrayAdapter(MusicListActivity.this, R.layout.music_list_row);
-            } else {
-                mAdapter.clear();
-            }
-
-            // Adapterオブジェクトにリスト項目を追加
-            for (MusicItem item : musicItems) {
-                mAdapter.add(item);
-
-                // デフォルトアイテムを選択
-                if (mAdapter.getSelectItem() == null && item.equals(defaultItem)) {
+            mAdapter = new MusicItemArrayAdapter(MusicListActivity.this, R.layout.music_list_row, mMusicItems);
+
+            // デフォルトアイテムを選択（一覧に含まれる場合のみ）
+            if (defaultItem != null) {
+                DataManager dataManager = new DataManager(getApplicationContext());
+                MusicItem item = dataManager.selectMusicItem(defaultItem.content, defaultItem.id);
+                if (item != null && item.type == musicType &&
+                        (artist == null || artist.length() == 0 || artist.equals(item.artist))) {
                     mAdapter.setSelectItem(item);
                 }
             }
@@ -260,7 +309,7 @@ public class MusicListActivity extends Activity {
                     mClickItem = (MusicItem)listView.getItemAtPosition(position);
 
                     // 選択中のアイテムと異なる場合
-                    if (!mClickItem.equals(mAdapter.getSelectItem())) {
+                    if (mClickItem != null && !mClickItem.equals(mAdapter.getSelectItem())) {
                         // 音楽を停止
                         AlarmClockWidget.musicStop(getApplicationContext());
 
@@ -286,7 +335,7 @@ public class MusicListActivity extends Activity {
                     mClickItem = (MusicItem)listView.getItemAtPosition(position);
 
                     // メニューダイアログを表示
-                    if (mClickItem.content != MusicItem.CONTENT_RANDOM) {
+                    if (mClickItem != null && mClickItem.content != MusicItem.CONTENT_RANDOM) {
                         showDialog(DIALOG_MENU);
                     }
 
@@ -294,6 +343,27 @@ public class MusicListActivity extends Activity {
                 }
             });
 
+            // 検索文字列が変更された時の処理（タイトル・アーティストで絞り込む）
+            mEditSearch = (EditText)findViewById(R.id.music_search_edittext);
+            mSearchWatcher = new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                }
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    // 入力が止まってから検索する
+                    mSearchQuery = s.toString();
+                    mSearchHandler.removeCallbacks(mSearchRunnable);
+                    mSearchHandler.postDelayed(mSearchRunnable, SEARCH_DELAY);
+                }
+            };
+            mEditSearch.addTextChangedListener(mSearchWatcher);
+
             // OKボタン押下時の処理
             mButtonOk = (Button)findViewById(R.id.music_ok_button);
             mButtonOk.setOnClickListener(new View.OnClickListener() {
@@ -327,9 +397,8 @@ public class MusicListActivity extends Activity {
      */
     private void releaseContent() {
         try {
-            // Adapterオブジェクト
+            // Adapterオブジェクト（リスト項目は読み込み専用のためクリアしない）
             if (mAdapter != null) {
-                mAdapter.clear();
                 mAdapter = null;
             }
 
@@ -341,6 +410,23 @@ public class MusicListActivity extends Activity {
                 mListView = null;
             }
 
+            // 検索文字列
+            if (mEditSearch != null) {
+                mEditSearch.removeTextChangedListener(mSearchWatcher);
+                mEditSearch = null;
+                mSearchWatcher = null;
+            }
+
+            // 検索
+            mSearchHandler.removeCallbacks(mSearchRunnable);
+            if (mSearchTask != null) {
+                mSearchTask.cancel(false);
+                mSearchTask = null;
+            }
+
+            // 音楽一覧（読み込み専用のためクリアしない）
+            mMusicItems = null;
+
             // OKボタン
             if (mButtonOk != null) {
                 mButtonOk.setOnClickListener(null);
@@ -455,6 +541,92 @@ public class MusicListActivity extends Activity {
         return dialog;
     }
 
+    /**
+     * 音楽を検索する非同期タスク
+     */
+    private class SearchTask extends AsyncTask<Void, Void, List<MusicItem>> {
+        private final Context mContext;
+        private final String mQuery;
+
+        /**
+         * コンストラクタ
+         */
+        SearchTask(Context context, String query) {
+            mContext = context;
+            mQuery = query;
+        }
+
+        /**
+         * バックグラウンドで実行される処理
+         */
+        @Override
+        protected List<MusicItem> doInBackground(Void... arg) {
+            DataManager dataManager = new DataManager(mContext);
+            return dataManager.searchMusicItems(mMusicType, mArtist, mQuery, SEARCH_MAX_COUNT);
+        }
+
+        /**
+         * 検索終了時の処理（新しい検索が開始されている場合は結果を使わない）
+         */
+        @Override
+        protected void onPostExecute(List<MusicItem> items) {
+            if (mSearchTask != this) {
+                return;
+            }
+            mSearchTask = null;
+            if (items != null) {
+                showMusicItems(items);
+            }
+        }
+    }
+
+    /**
+     * 音楽一覧を検索文字列で絞り込む
+     * （検索文字列が空の場合は全件の一覧に戻す。検索はバックグラウンドで行う）
+     * @param query 検索文字列
+     */
+    private void filterMusicItems(String query) {
+        try {
+            // 実行中の検索は取り消す
+            if (mSearchTask != null) {
+                mSearchTask.cancel(false);
+                mSearchTask = null;
+            }
+
+            // 検索文字列が空の場合は全件の一覧
+            if (query.trim().length() == 0) {
+                showMusicItems(mMusicItems);
+                return;
+            }
+
+            // 検索開始
+            mSearchTask = new SearchTask(getApplicationContext(), query);
+            mSearchTask.execute();
+        } catch (Exception e) {
+            AlarmClockApp.outputError(getApplicationContext(), "Filter music items error!", e, true, true);
+        }
+    }
+
+    /**
+     * 音楽一覧を表示する（選択中のアイテムは変えない）
+     * @param items アイテムのリスト
+     */
+    private void showMusicItems(List<MusicItem> items) {
+        try {
+            if (mAdapter == null || mListView == null) {
+                return;
+            }
+
+            // Adapterオブジェクトを作り直す
+            MusicItem selectItem = mAdapter.getSelectItem();
+            mAdapter = new MusicItemArrayAdapter(MusicListActivity.this, R.layout.music_list_row, items);
+            mAdapter.setSelectItem(selectItem);
+            mListView.setAdapter(mAdapter);
+        } catch (Exception e) {
+            AlarmClockApp.outputError(getApplicationContext(), "Show music items error!", e, true, true);
+        }
+    }
+
     /**
      * ブックマークに追加する
      */
@@ -463,6 +635,13 @@ public class MusicListActivity extends Activity {
             // 追加する音楽キーを取得
             DataManager dataManager = new DataManager(getApplicationContext());
             String path = mClickItem.getPath(getApplicationContext());
+
+            // ファイルパスがない場合は登録しない
+            if (path == null || path.length() == 0) {
+                String addNgMessage = getResources().getString(R.string.add_ng_message);
+                Toast.makeText(getApplicationContext(), addNgMessage, Toast.LENGTH_SHORT).show();
+                return;
+            }
             MusicKey musicKey = dataManager.selectBookmark(path);
 
             // 登録済みの場合は登録しない
@@ -1,7 +1,9 @@
 package com.esp.android.alarmclock;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import android.content.Context;
 import android.os.AsyncTask;
@@ -55,39 +57,45 @@ public class PrepareMusicRetrieverTask extends AsyncTask<Context, Void, Boolean>
                     }
                 }
 
-                // 音楽を全て削除
-                dataManager.deleteMusicItems();
-
-                // 音楽を検索して追加
+                // 音楽を検索して変更があったものだけ反映
+                // （反映できなかった場合は、古い音楽テーブルでアラームとブックマークを更新しない）
                 List<MusicItem> items = MusicItem.getItems(context);
-                if (items != null) {
-                    dataManager.insertMusicItems(items);
-                } else {
+                if (items == null || !dataManager.syncMusicItems(items)) {
                     AlarmClockApp.outputError(context, "Prepare music retriever error!", null, true, true);
-                    result = Boolean.FALSE;
+                    bRetriever = false;
+                    return Boolean.FALSE;
                 }
 
-                // アラームに設定されている音楽を更新する
+                // ファイルパスから音楽を探すためのインデックスを作成
+                Map<String, MusicItem> pathIndex = createPathIndex(context, items);
+
+                // アラームに設定されている音楽を更新する（変更があったものだけまとめて更新）
                 List<AlarmSetting> alarmSettings = dataManager.selectAlarmSettings();
+                List<AlarmSetting> changedSettings = new ArrayList<AlarmSetting>();
                 for (AlarmSetting alarmSetting : alarmSettings) {
-                    MusicItem musicItem = searchMusicItem(context, items, alarmSetting.musicKey.path);
-                    if (musicItem != null) {
+                    MusicItem musicItem = searchMusicItem(pathIndex, alarmSetting.musicKey.path);
+                    if (musicItem != null && (alarmSetting.musicKey.content != musicItem.content ||
+                                              alarmSetting.musicKey.id != musicItem.id)) {
                         alarmSetting.musicKey.content = musicItem.content;
                         alarmSetting.musicKey.id = musicItem.id;
-                        dataManager.updateAlarmSetting(alarmSetting.id, alarmSetting);
+                        changedSettings.add(alarmSetting);
                     }
                 }
+                dataManager.updateAlarmSettings(changedSettings);
 
-                // ブックマークの音楽を更新する
+                // ブックマークの音楽を更新する（変更があったものだけまとめて更新）
                 List<MusicKey> musicKeys = dataManager.selectBookmarks();
+                List<MusicKey> changedKeys = new ArrayList<MusicKey>();
                 for (MusicKey musicKey : musicKeys) {
-                    MusicItem musicItem = searchMusicItem(context, items, musicKey.path);
-                    if (musicItem != null) {
+                    MusicItem musicItem = searchMusicItem(pathIndex, musicKey.path);
+                    if (musicItem != null && (musicKey.content != musicItem.content ||
+                                              musicKey.id != musicItem.id)) {
                         musicKey.content = musicItem.content;
                         musicKey.id = musicItem.id;
-                        dataManager.updateBookmark(musicKey.path, musicKey);
+                        changedKeys.add(musicKey);
                     }
                 }
+                dataManager.updateBookmarks(changedKeys);
                 bRetriever = false;
             }
         } catch (Exception e) {
@@ -100,29 +108,40 @@ public class PrepareMusicRetrieverTask extends AsyncTask<Context, Void, Boolean>
     }
 
     /**
-     * ファイルパスから音楽リストを検索する
+     * ファイルパスから音楽を探すためのインデックスを作成する
      * @param context コンテキスト
      * @param items アイテムのリスト
-     * @param path ファイルパス
-     * @return 見つかった音楽
+     * @return ファイルパスと音楽の対応（同じパスはリストの先頭のものを使う）
      */
-    private static MusicItem searchMusicItem(Context context, List<MusicItem> items, String path) {
-        try {
-            if (path == null || path.length() == 0) {
-                return null;
-            }
-            Iterator<MusicItem> itr = items.iterator(); 
-            while (itr.hasNext()) { 
-                MusicItem item = (MusicItem)itr.next();
-                if (path.equals(item.getPath(context))) {
-                    return item;
+    private static Map<String, MusicItem> createPathIndex(Context context, List<MusicItem> items) {
+        Map<String, MusicItem> pathIndex = new HashMap<String, MusicItem>();
+        if (items == null) {
+            return pathIndex;
+        }
+        for (MusicItem item : items) {
+            try {
+                String path = item.getPath(context);
+                if (path != null && !pathIndex.containsKey(path)) {
+                    pathIndex.put(path, item);
                 }
+            } catch (Exception e) {
+                AlarmClockApp.outputError(context, "Search music item error!", e, true, true);
             }
-        } catch (Exception e) {
-            AlarmClockApp.outputError(context, "Search music item error!", e, true, true);
+        }
+        return pathIndex;
+    }
+
+    /**
+     * ファイルパスから音楽を検索する
+     * @param pathIndex ファイルパスと音楽の対応
+     * @param path ファイルパス
+     * @return 見つかった音楽
+     */
+    private static MusicItem searchMusicItem(Map<String, MusicItem> pathIndex, String path) {
+        if (path == null || path.length() == 0) {
             return null;
         }
-        return null;
+        return pathIndex.get(path);
     }
 
     /**
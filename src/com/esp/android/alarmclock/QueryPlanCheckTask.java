@@ -0,0 +1,96 @@
+package com.esp.android.alarmclock;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.os.AsyncTask;
+
+/**
+ * 音楽テーブルの検索がインデックスを使っているか確認するための非同期タスク（テスト用）
+ * （ページ・アーティスト・ファイルパスの検索の実行計画をエラー情報に出力し、
+ *   音楽テーブルの全件走査や一時的な並べ替えがあればエラーにする）
+ */
+public class QueryPlanCheckTask extends AsyncTask<Context, Void, Void> {
+
+    // 音楽テーブルの全件走査
+    private static final Pattern SCAN_PATTERN = Pattern.compile(
+            "SCAN (TABLE )?" + DataManager.MUSICITEM_TABLE_NAME + "\\b");
+
+    // 一時的な並べ替え
+    private static final Pattern TEMP_B_TREE_PATTERN = Pattern.compile("USE TEMP B-TREE");
+
+    /**
+     * バックグラウンドで実行される処理
+     */
+    @Override
+    protected Void doInBackground(Context... arg) {
+        Context context = arg[0];
+        try {
+            DataManager dataManager = new DataManager(context);
+            String type = String.valueOf(MusicItem.TYPE_MUSIC);
+            int errors = 0;
+
+            // ページ（先頭・次のページ、アーティストの絞り込みあり・なし）
+            errors += check(context, dataManager, "page",
+                    DataManager.musicItemPageSql(false, false, 0, 50),
+                    new String[]{type});
+            errors += check(context, dataManager, "page after",
+                    DataManager.musicItemPageSql(false, true, 0, 50),
+                    new String[]{type, "a", "a", "1"});
+            errors += check(context, dataManager, "artist page",
+                    DataManager.musicItemPageSql(true, false, 0, 50),
+                    new String[]{type, "a"});
+            errors += check(context, dataManager, "artist page after",
+                    DataManager.musicItemPageSql(true, true, 0, 50),
+                    new String[]{type, "a", "a", "a", "1"});
+
+            // アーティスト一覧（selectMusicArtistsと同じSQL）
+            errors += check(context, dataManager, "artists",
+                    SQLiteQueryBuilder.buildQueryString(false, DataManager.MUSICITEM_TABLE_NAME,
+                            new String[]{DataManager.MUSICITEM_COL_ARTIST},
+                            DataManager.MUSICITEM_COL_TYPE + " = ?",
+                            DataManager.MUSICITEM_COL_ARTIST, null, null, null),
+                    new String[]{type});
+
+            // ファイルパス（selectMusicItemByPathと同じSQL）
+            errors += check(context, dataManager, "path",
+                    SQLiteQueryBuilder.buildQueryString(false, DataManager.MUSICITEM_TABLE_NAME,
+                            null, DataManager.MUSICITEM_COL_PATH + " = ?", null, null, null, "1"),
+                    new String[]{"/"});
+
+            String info = "Query plan check: " + (errors == 0 ? "OK" : errors + " errors");
+            AlarmClockApp.outputError(context, info, null, errors != 0, true);
+        } catch (Exception e) {
+            AlarmClockApp.outputError(context, "Query plan check error!", e, true, true);
+        }
+        return null;
+    }
+
+    /**
+     * 実行計画を出力して確認
+     * @param context コンテキスト
+     * @param dataManager データマネージャ
+     * @param name 検索の名前
+     * @param sql SQL
+     * @param args 引数
+     * @return エラーの数
+     */
+    private static int check(Context context, DataManager dataManager, String name, String sql, String[] args) {
+        List<String> plan = dataManager.explainQueryPlan(sql, args);
+        if (plan == null) {
+            return 1;
+        }
+        int errors = 0;
+        for (String detail : plan) {
+            boolean bError = SCAN_PATTERN.matcher(detail).find() || TEMP_B_TREE_PATTERN.matcher(detail).find();
+            if (bError) {
+                errors++;
+            }
+            String info = "Query plan " + name + ": " + detail + (bError ? " (NG)" : "");
+            AlarmClockApp.outputError(context, info, null, false, true);
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,102 @@
+package com.esp.android.alarmclock;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.CountDownLatch;
+
+import android.content.Context;
+import android.os.AsyncTask;
+
+/**
+ * 書き込み中の読み込みの待ち時間を計測するための非同期タスク（テスト用）
+ * （別スレッドで書き込みのトランザクションを保持している間にアラーム設定を読み込み、
+ *   書き込みがない場合と比べた1回あたりの時間をエラー情報に出力する）
+ */
+public class ReadLatencyBenchmarkTask extends AsyncTask<Context, Void, Void> {
+
+    // 書き込みのトランザクションを保持する時間（ミリ秒）
+    private static final long HOLD_MILLIS = 2000;
+
+    // 書き込みがない場合に読み込む回数
+    private static final int IDLE_TIMES = 200;
+
+    /**
+     * 読み込みの時間の集計
+     */
+    private static class Latency {
+        int count = 0;
+        long total = 0;
+        long max = 0;
+
+        void add(long elapsed) {
+            count++;
+            total += elapsed;
+            max = Math.max(max, elapsed);
+        }
+    }
+
+    /**
+     * バックグラウンドで実行される処理
+     */
+    @Override
+    protected Void doInBackground(Context... arg) {
+        final Context context = arg[0];
+        try {
+            DataManager dataManager = new DataManager(context);
+
+            // 書き込みがない場合
+            Latency idle = new Latency();
+            for (int i = 0; i < IDLE_TIMES; i++) {
+                read(dataManager, idle);
+            }
+
+            // 別スレッドで書き込みのトランザクションを保持
+            final CountDownLatch locked = new CountDownLatch(1);
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    new DataManager(context).holdWriteTransaction(HOLD_MILLIS, locked);
+                }
+            });
+            writer.start();
+            locked.await();
+
+            // 書き込み中（書き込みが終わるまで読み込みを繰り返す）
+            Latency writing = new Latency();
+            do {
+                read(dataManager, writing);
+            } while (writer.isAlive());
+            writer.join();
+
+            boolean bBlocked = writing.max >= HOLD_MILLIS / 2 * 1000000L;
+            String info = "Read latency: idle " + format(idle) + ", during write " + format(writing) +
+                          (bBlocked ? " (blocked)" : "");
+            AlarmClockApp.outputError(context, info, null, bBlocked, true);
+        } catch (Exception e) {
+            AlarmClockApp.outputError(context, "Read latency benchmark error!", e, true, true);
+        }
+        return null;
+    }
+
+    /**
+     * アラーム設定を読み込んで時間を集計
+     * @param dataManager データマネージャ
+     * @param latency 読み込みの時間の集計
+     */
+    private static void read(DataManager dataManager, Latency latency) {
+        long start = System.nanoTime();
+        dataManager.getAlarmSettingCount();
+        dataManager.selectAlarmSettings();
+        latency.add(System.nanoTime() - start);
+    }
+
+    /**
+     * 読み込みの時間の集計を文字列に変換
+     * @param latency 読み込みの時間の集計
+     * @return 文字列
+     */
+    private static String format(Latency latency) {
+        DecimalFormat f = new DecimalFormat("#,##0.000");
+        return "avg " + f.format(latency.total / 1e6 / Math.max(1, latency.count)) + " ms, " +
+               "max " + f.format(latency.max / 1e6) + " ms (" + latency.count + " reads)";
+    }
+}
@@ -0,0 +1,132 @@
+package com.esp.android.alarmclock;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Debug;
+
+/**
+ * 次のアラーム日時の計算時間を計測するための非同期タスク（テスト用）
+ * （繰返し毎に、年末年始・ゴールデンウィークを含む基準日時でgetNextCalendarを実行し、
+ *   1回あたりの時間とメモリ確保量をエラー情報に出力する）
+ */
+public class ScheduleBenchmarkTask extends AsyncTask<Context, Void, Void> {
+
+    // 計測前に実行する回数
+    private static final int WARMUP_TIMES = 2000;
+
+    // 計測する回数
+    private static final int MEASURE_TIMES = 20000;
+
+    // 基準日時を作成する年
+    private static final int FIRST_YEAR = 2024;
+    private static final int LAST_YEAR = 2027;
+
+    /**
+     * バックグラウンドで実行される処理
+     */
+    @Override
+    protected Void doInBackground(Context... arg) {
+        Context context = arg[0];
+        try {
+            long[] instants = createInstants();
+            DecimalFormat f = new DecimalFormat("#,##0");
+            for (AlarmSetting.Repeat repeat : AlarmSetting.Repeat.values()) {
+                AlarmSetting setting = createSetting(repeat);
+
+                // 計測前に実行（スケジュールの作成と最適化を済ませる）
+                run(setting, instants, WARMUP_TIMES);
+
+                // 計測
+                Debug.startAllocCounting();
+                long allocStart = Debug.getThreadAllocSize();
+                long start = System.nanoTime();
+                int found = run(setting, instants, MEASURE_TIMES);
+                long elapsed = System.nanoTime() - start;
+                long alloc = Debug.getThreadAllocSize() - allocStart;
+                Debug.stopAllocCounting();
+
+                String info = "Benchmark " + repeat + ": " +
+                              f.format(elapsed / MEASURE_TIMES) + " ns/op, " +
+                              f.format(alloc / MEASURE_TIMES) + " B/op (" +
+                              found + "/" + MEASURE_TIMES + " found)";
+                AlarmClockApp.outputError(context, info, null, false, true);
+            }
+        } catch (Exception e) {
+            AlarmClockApp.outputError(context, "Schedule benchmark error!", e, true, true);
+        }
+        return null;
+    }
+
+    /**
+     * 基準日時を順番に変えてgetNextCalendarを実行
+     * @param setting アラーム設定
+     * @param instants 基準日時（UTC）の配列
+     * @param times 実行回数
+     * @return 次のアラーム日時が見つかった回数
+     */
+    private static int run(AlarmSetting setting, long[] instants, int times) {
+        int found = 0;
+        for (int i = 0; i < times; i++) {
+            if (setting.getNextCalendar(instants[i % instants.length]) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 計測用のアラーム設定を作成（7:00、曜日は月～金）
+     * @param repeat 繰返し
+     * @return アラーム設定
+     */
+    private static AlarmSetting createSetting(AlarmSetting.Repeat repeat) {
+        AlarmSetting setting = new AlarmSetting();
+        setting.onOff = 1;
+        setting.repeat = repeat;
+        setting.setWeekMask(0x3E);
+        setting.hour = 7;
+        setting.minute = 0;
+        setting.ymd = setting.new Ymd(LAST_YEAR + 1, Calendar.JANUARY, 4);
+        return setting;
+    }
+
+    /**
+     * 基準日時の配列を作成
+     * （年末年始、ゴールデンウィーク、通常の週の前後の時刻）
+     * @return 基準日時（UTC）の配列
+     */
+    private static long[] createInstants() {
+        List<Long> list = new ArrayList<Long>();
+        int[][] dates = {
+            // 年末年始
+            { Calendar.DECEMBER, 28 }, { Calendar.DECEMBER, 31 },
+            { Calendar.JANUARY, 1 }, { Calendar.JANUARY, 2 },
+            // ゴールデンウィーク
+            { Calendar.APRIL, 28 }, { Calendar.APRIL, 29 }, { Calendar.APRIL, 30 },
+            { Calendar.MAY, 1 }, { Calendar.MAY, 2 }, { Calendar.MAY, 3 },
+            { Calendar.MAY, 4 }, { Calendar.MAY, 5 }, { Calendar.MAY, 6 },
+            // 通常の週
+            { Calendar.JUNE, 10 }, { Calendar.SEPTEMBER, 15 }, { Calendar.NOVEMBER, 20 },
+        };
+        int[][] times = { { 0, 0 }, { 6, 59 }, { 7, 0 }, { 23, 59 } };
+        for (int year = FIRST_YEAR; year <= LAST_YEAR; year++) {
+            for (int[] date : dates) {
+                for (int[] time : times) {
+                    GregorianCalendar calendar = new GregorianCalendar(year, date[0], date[1], time[0], time[1]);
+                    list.add(Long.valueOf(calendar.getTimeInMillis()));
+                }
+            }
+        }
+        long[] instants = new long[list.size()];
+        for (int i = 0; i < instants.length; i++) {
+            instants[i] = list.get(i).longValue();
+        }
+        return instants;
+    }
+}
@@ -124,24 +124,32 @@ public class SnoozeReleaseActivity extends Activity {
         try {
             setContentView(R.layout.snooze_release);
 
-            // パラメータを取得
+            // パラメータを取得（アラーム設定のIDと時刻がない場合は現在のアラームの状態から取得）
             Intent intent = getIntent();
-            final long alarmId = intent.getLongExtra("alarm_id", -1);
-            mAlarmTime = intent.getLongExtra("alarm_time", -1);
+            AlarmStateStore.Snapshot state = AlarmStateStore.get(getApplicationContext());
+            long[] alarmIds = intent.getLongArrayExtra("alarm_ids");
+            if (alarmIds == null) {
+                alarmIds = new long[] { state.alarmId };
+            }
+            mAlarmTime = intent.getLongExtra("alarm_time", state.alarmTimeInMillis);
             final int remainTimes = intent.getIntExtra("remain_times", -1);
             final String alarmKey = intent.getStringExtra("alarm_key");
 
             // アラームキーチェック
             if (alarmKey == null || alarmKey.length() == 0 ||
-                !alarmKey.equals(DataManager.getAlarmKey(getApplicationContext()))) {
+                !alarmKey.equals(state.alarmKey)) {
                 // アラーム停止済みダイアログを表示
                 showDialog(DIALOG_ALARM_STOPPED);
                 return;
             }
 
-            // アラーム設定取得
-            DataManager dataManager = new DataManager(getApplicationContext());
-            AlarmSetting alarmSetting = dataManager.selectAlarmSetting(alarmId);
+            // アラーム設定取得（アラームONの最初のアラーム設定）
+            AlarmSetting alarmSetting = AlarmClockWidget.selectEnabledAlarmSetting(getApplicationContext(), alarmIds);
+            if (alarmSetting == null) {
+                // アラーム停止済みダイアログを表示
+                showDialog(DIALOG_ALARM_STOPPED);
+                return;
+            }
 
             // 解除ボタン押下時の処理
             mButtonRelease = (Button)findViewById(R.id.release_button);